@@ -1,17 +1,45 @@
 package com.github.sparrow.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.PropertySource;
 
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Configuration
+@PropertySource("classpath:sparrow.properties")
 public class ExecutorConfig {
 
   @Bean
+  @Primary
   public ExecutorService executorService() {
     return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
   }
 
+  /**
+   * Searches the slices of a single query concurrently, kept apart from the indexing pool so a bulk
+   * indexing run can not starve the searches
+   */
+  @Bean
+  public ExecutorService searchExecutor(
+    @Value("${search.executor.virtual}") boolean virtualThreads,
+    @Value("${search.executor.threads}") int threads
+  ) {
+    if (virtualThreads) {
+      return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("search-", 0).factory());
+    }
+    final AtomicInteger count = new AtomicInteger();
+    ThreadFactory threadFactory = runnable -> {
+      Thread thread = new Thread(runnable, "search-" + count.getAndIncrement());
+      thread.setDaemon(true);
+      return thread;
+    };
+    return Executors.newFixedThreadPool(threads > 0 ? threads : Runtime.getRuntime().availableProcessors(), threadFactory);
+  }
+
 }
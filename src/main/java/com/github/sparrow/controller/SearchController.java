@@ -1,21 +1,46 @@
 package com.github.sparrow.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.sparrow.dto.ArticleSearchResponse;
+import com.github.sparrow.dto.MultiSearchRequest;
+import com.github.sparrow.dto.MultiSearchResponse;
+import com.github.sparrow.lucene.EngineType;
+import com.github.sparrow.lucene.IndexStats;
+import com.github.sparrow.lucene.QueryResultCache;
+import com.github.sparrow.lucene.SearchMetrics;
 import com.github.sparrow.lucene.entity.DictionaryEntry;
 import com.github.sparrow.lucene.entity.SearchHit;
+import com.github.sparrow.lucene.entity.SearchQuery;
+import com.github.sparrow.lucene.entity.SearchResults;
+import com.github.sparrow.lucene.entity.Suggestion;
 import com.github.sparrow.lucene.entity.Tweet;
 import com.github.sparrow.service.ArticleService;
 import com.github.sparrow.service.DictionaryService;
+import com.github.sparrow.service.MultiSearchService;
+import com.github.sparrow.service.SearchStatsService;
+import com.github.sparrow.service.SuggestService;
 import com.github.sparrow.service.TwitterService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @RestController
 @RequestMapping("api/search")
@@ -25,24 +50,115 @@ public class SearchController {
   private final ArticleService articleService;
   private final DictionaryService dictionaryService;
   private final TwitterService twitterService;
+  private final SearchStatsService searchStatsService;
+  private final SuggestService suggestService;
+  private final MultiSearchService multiSearchService;
+  private final ObjectMapper objectMapper;
 
+  /**
+   * Searches the meanings of the words, {@code q} is parsed with the Lucene query syntax
+   */
   @GetMapping("/dictionary")
   public ResponseEntity<List<SearchHit<DictionaryEntry>>> dictionarySearch(@RequestParam("q") String query) {
     return ResponseEntity.ok(dictionaryService.search(query));
   }
 
+  @GetMapping("/dictionary/{word}")
+  public ResponseEntity<List<DictionaryEntry>> dictionaryLookup(@PathVariable("word") String word) {
+    return ResponseEntity.ok(dictionaryService.lookup(word));
+  }
+
+  @GetMapping("/dictionary/prefix/{prefix}")
+  public ResponseEntity<List<String>> dictionaryPrefixLookup(
+    @PathVariable("prefix") String prefix,
+    @RequestParam(value = "n", required = false, defaultValue = "10") int n) {
+    return ResponseEntity.ok(dictionaryService.lookupPrefix(prefix, n));
+  }
+
+  /**
+   * Hits are streamed as newline delimited json when asked for with {@code Accept: application/x-ndjson},
+   * one hit per line followed by a {@code {"cursor": ...}} line when there are more pages
+   */
   @GetMapping("/twitter")
-  public ResponseEntity<List<SearchHit<Tweet>>> tweetSearch(
+  public ResponseEntity<?> tweetSearch(
     @RequestParam(value = "q") String query,
     @RequestParam(value = "n", required = false) Integer topN,
     @RequestParam(value = "from", required = false) String username,
-    @RequestParam(value = "stem", required = false, defaultValue = "true") boolean stem) {
-    return ResponseEntity.ok(twitterService.search(query, topN, username, stem));
+    @RequestParam(value = "stem", required = false, defaultValue = "true") boolean stem,
+    @RequestParam(value = "cursor", required = false) String cursor,
+    @RequestParam(value = "since", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate since,
+    @RequestParam(value = "until", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate until,
+    @RequestParam(value = "min_likes", required = false) Integer minLikes,
+    @RequestParam(value = "max_likes", required = false) Integer maxLikes,
+    @RequestParam(value = "min_retweets", required = false) Integer minRetweets,
+    @RequestParam(value = "max_retweets", required = false) Integer maxRetweets,
+    @RequestParam(value = "min_views", required = false) Integer minViews,
+    @RequestParam(value = "max_views", required = false) Integer maxViews,
+    @RequestParam(value = "likes_boost", required = false) Float likesBoost,
+    @RequestParam(value = "retweets_boost", required = false) Float retweetsBoost,
+    @RequestParam(value = "views_boost", required = false) Float viewsBoost,
+    @RequestParam(value = "sort", required = false, defaultValue = "relevance") String sort,
+    @RequestParam(value = "facets", required = false, defaultValue = "false") boolean facets,
+    @RequestParam(value = "pointers", required = false, defaultValue = "false") boolean pointers,
+    @RequestParam(value = "fields", required = false) Set<String> fields,
+    @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+    SearchQuery searchQuery = SearchQuery.builder()
+      .query(query)
+      .username(username)
+      .topN(topN)
+      .cursor(cursor)
+      .stemming(stem)
+      .since(since)
+      .until(until)
+      .minLikes(minLikes)
+      .maxLikes(maxLikes)
+      .minRetweets(minRetweets)
+      .maxRetweets(maxRetweets)
+      .minViews(minViews)
+      .maxViews(maxViews)
+      .likesBoost(likesBoost)
+      .retweetsBoost(retweetsBoost)
+      .viewsBoost(viewsBoost)
+      .sort(SearchQuery.Sort.of(sort))
+      .facets(facets)
+      .pointers(pointers)
+      .fields(fields)
+      .build();
+    if (accept != null && accept.contains(MediaType.APPLICATION_NDJSON_VALUE)) {
+      // the status is sent with the first streamed line, an invalid search has to fail before
+      twitterService.validate(searchQuery);
+      return ndjson(out -> {
+        String next = twitterService.search(searchQuery, hit -> writeLine(out, hit));
+        if (next != null) writeLine(out, Map.of("cursor", next));
+      });
+    }
+    return ResponseEntity.ok(twitterService.search(searchQuery));
+  }
+
+  /**
+   * Every indexed tweet as newline delimited json
+   */
+  @GetMapping(value = "/twitter/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+  public ResponseEntity<StreamingResponseBody> exportTweets() {
+    return ndjson(out -> twitterService.exportTweets(tweet -> writeLine(out, tweet)));
   }
 
+  /**
+   * The newest {@code n} tweets of the user, the default page size when not given; see the timeline for more pages
+   */
   @GetMapping("/user/{username}")
-  public ResponseEntity<List<Tweet>> searchByUsername(@PathVariable("username") String username) {
-    return ResponseEntity.ok(twitterService.searchByUsername(username));
+  public ResponseEntity<List<Tweet>> searchByUsername(
+    @PathVariable("username") String username,
+    @RequestParam(value = "n", required = false) Integer topN) {
+    return ResponseEntity.ok(twitterService.searchByUsername(username, topN));
+  }
+
+  @GetMapping("/user/{username}/timeline")
+  public ResponseEntity<SearchResults<Tweet>> timeline(
+    @PathVariable("username") String username,
+    @RequestParam(value = "n", required = false) Integer topN,
+    @RequestParam(value = "cursor", required = false) String cursor) {
+    return ResponseEntity.ok(twitterService.timeline(username, topN, cursor));
   }
 
   @GetMapping("/twitter/count")
@@ -51,12 +167,13 @@ public class SearchController {
   }
 
   @GetMapping("/article")
-  public ResponseEntity<List<SearchHit<ArticleSearchResponse>>> articleSearch(
+  public ResponseEntity<SearchResults<ArticleSearchResponse>> articleSearch(
     @RequestParam(value = "q") String query,
     @RequestParam(value = "n", required = false) Integer topN,
-    @RequestParam(value = "stem", required = false, defaultValue = "true") boolean stem
+    @RequestParam(value = "stem", required = false, defaultValue = "true") boolean stem,
+    @RequestParam(value = "cursor", required = false) String cursor
   ) {
-    return ResponseEntity.ok(articleService.search(query, topN, stem));
+    return ResponseEntity.ok(articleService.search(query, topN, stem, cursor));
   }
 
   @GetMapping("/article/tokens")
@@ -64,4 +181,48 @@ public class SearchController {
     return ResponseEntity.ok(articleService.getIndexedTokens());
   }
 
+  /**
+   * Searches a batch of queries across the engines over a single view of every index, results in the order of the queries
+   */
+  @PostMapping("/_multi")
+  public ResponseEntity<List<MultiSearchResponse>> multiSearch(@RequestBody List<MultiSearchRequest> requests) {
+    return ResponseEntity.ok(multiSearchService.search(requests));
+  }
+
+  /**
+   * Completions of a query prefix, meant to be asked for on every key stroke instead of a search
+   */
+  @GetMapping("/suggest")
+  public ResponseEntity<List<Suggestion>> suggest(
+    @RequestParam(value = "q") String prefix,
+    @RequestParam(value = "engine", required = false, defaultValue = "tweets") String engine,
+    @RequestParam(value = "n", required = false, defaultValue = "5") int n) {
+    return ResponseEntity.ok(suggestService.suggest(EngineType.of(engine), prefix, n));
+  }
+
+  @GetMapping("/stats/cache")
+  public ResponseEntity<QueryResultCache.Stats> cacheStats() {
+    return ResponseEntity.ok(searchStatsService.getCacheStats());
+  }
+
+  @GetMapping("/stats/latency")
+  public ResponseEntity<List<SearchMetrics.LatencyStats>> latencyStats() {
+    return ResponseEntity.ok(searchStatsService.getLatencyStats());
+  }
+
+  @GetMapping("/stats/index")
+  public ResponseEntity<List<IndexStats>> indexStats() {
+    return ResponseEntity.ok(searchStatsService.getIndexStats());
+  }
+
+  /// writes go straight to the response, so a slow client blocks the writer instead of hits piling up on the heap
+  private ResponseEntity<StreamingResponseBody> ndjson(StreamingResponseBody body) {
+    return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+  }
+
+  private void writeLine(OutputStream out, Object value) throws IOException {
+    out.write(objectMapper.writeValueAsBytes(value));
+    out.write('\n');
+  }
+
 }
@@ -3,6 +3,7 @@ package com.github.sparrow.dto;
 import lombok.Builder;
 import lombok.Getter;
 import lombok.Setter;
+import org.apache.lucene.util.RamUsageEstimator;
 
 @Getter
 @Setter
@@ -14,4 +15,10 @@ public class ArticleSearchResponse {
   private String content;
   private String contentHash;
 
+  /// approximate heap footprint, to bound the result cache by memory
+  public long ramBytesUsed() {
+    return RamUsageEstimator.shallowSizeOfInstance(ArticleSearchResponse.class) + RamUsageEstimator.sizeOf(url)
+      + RamUsageEstimator.sizeOf(title) + RamUsageEstimator.sizeOf(content) + RamUsageEstimator.sizeOf(contentHash);
+  }
+
 }
@@ -0,0 +1,13 @@
+package com.github.sparrow.dto;
+
+import com.github.sparrow.lucene.EngineType;
+import com.github.sparrow.lucene.entity.SearchQuery;
+
+/**
+ * One of the queries of a multi search, e.g. {@code {"engine": "tweets", "query": {"query": "ipl", "topN": 5}}}
+ */
+public record MultiSearchRequest(
+  EngineType engine,
+  SearchQuery query
+) {
+}
@@ -0,0 +1,11 @@
+package com.github.sparrow.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.github.sparrow.lucene.entity.SearchResults;
+
+/**
+ * Results of one of the queries of a multi search, in the order of the requests; a failed query only has an error
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record MultiSearchResponse(String engine, SearchResults<?> results, double tookMs, String error) {
+}
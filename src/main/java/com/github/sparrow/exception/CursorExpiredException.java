@@ -0,0 +1,12 @@
+package com.github.sparrow.exception;
+
+/**
+ * The searcher a cursor pages over is no longer pinned, the search has to start over from its first page
+ */
+public class CursorExpiredException extends RuntimeException {
+
+  public CursorExpiredException(String message) {
+    super(message);
+  }
+
+}
@@ -2,6 +2,9 @@ package com.github.sparrow.lucene;
 
 import org.apache.lucene.analysis.Analyzer;
 
+/**
+ * Analyzers are thread-safe and shared by every caller, so a caller never closes them
+ */
 public interface AnalyzerProvider {
 
   Analyzer getAnalyzer(EngineType engineType, LuceneMode luceneMode, Boolean stemming);
@@ -1,5 +1,6 @@
 package com.github.sparrow.lucene;
 
+import jakarta.annotation.PreDestroy;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.CharArraySet;
 import org.apache.lucene.analysis.LowerCaseFilter;
@@ -13,16 +14,40 @@ import org.apache.lucene.analysis.miscellaneous.RemoveDuplicatesTokenFilter;
 import org.apache.lucene.analysis.snowball.SnowballFilter;
 import org.apache.lucene.analysis.standard.StandardAnalyzer;
 import org.apache.lucene.analysis.standard.StandardTokenizer;
+import org.apache.lucene.util.IOUtils;
 import org.springframework.stereotype.Service;
 import org.tartarus.snowball.ext.EnglishStemmer;
 
+import java.io.IOException;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Analyzers are built once per engine, mode and stemming, and shared from then on; every thread reuses its own token
+ * stream components of a shared analyzer, along with their stemmers.
+ */
 @Service
 public class DefaultAnalyzerProvider implements AnalyzerProvider {
 
+  private final Map<AnalyzerKey, Analyzer> analyzers = new ConcurrentHashMap<>();
+
+  private record AnalyzerKey(EngineType engineType, LuceneMode luceneMode, boolean stemming) {
+  }
+
   @Override
   public Analyzer getAnalyzer(EngineType engineType, LuceneMode luceneMode, Boolean stemming) {
+    return analyzers.computeIfAbsent(new AnalyzerKey(engineType, luceneMode, stemming == null || stemming),
+      key -> createAnalyzer(key.engineType(), key.luceneMode(), key.stemming()));
+  }
+
+  @PreDestroy
+  public void close() throws IOException {
+    IOUtils.close(analyzers.values());
+    analyzers.clear();
+  }
+
+  private static Analyzer createAnalyzer(EngineType engineType, LuceneMode luceneMode, boolean stemming) {
     return switch (engineType) {
       case TWEETS -> {
         if (LuceneMode.INDEXING.equals(luceneMode)) {
@@ -60,7 +85,7 @@ public class DefaultAnalyzerProvider implements AnalyzerProvider {
 
     private final boolean stemming;
 
-    public TweetsSearchAnalyzer(Boolean stemming) {
+    public TweetsSearchAnalyzer(boolean stemming) {
       this.stemming = stemming;
     }
 
@@ -110,7 +135,7 @@ public class DefaultAnalyzerProvider implements AnalyzerProvider {
 
     private final boolean stemming;
 
-    public ArticlesSearchAnalyzer(Boolean stemming) {
+    public ArticlesSearchAnalyzer(boolean stemming) {
       this.stemming = stemming;
     }
 
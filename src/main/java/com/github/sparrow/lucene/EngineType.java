@@ -1,7 +1,10 @@
 package com.github.sparrow.lucene;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
 import lombok.Getter;
 
+import java.util.Locale;
+
 @Getter
 public enum EngineType {
 
@@ -15,4 +18,10 @@ public enum EngineType {
     this.name = name;
   }
 
+  /// the api names the engines in lower case, e.g. tweets
+  @JsonCreator
+  public static EngineType of(String name) {
+    return valueOf(name.toUpperCase(Locale.ROOT));
+  }
+
 }
@@ -25,6 +25,8 @@ public class IndexListener {
   private final Logger logger = LoggerFactory.getLogger(IndexListener.class);
   private final List<Indexer<?>> indexers;
   private final LuceneContextFactory contextFactory;
+  private final SearcherManagerRegistry searcherRegistry;
+  private final SuggesterRegistry suggesterRegistry;
   private final ExecutorService executorService;
 
   @Value("${indexing.parallel}")
@@ -59,6 +61,7 @@ public class IndexListener {
       logger.info("Created index context : {}", context);
       if (!forceIndex && !indexer.needsIndexing(context)) {
         logger.info("{} already indexed. Skipping indexing...", engineType);
+        suggesterRegistry.maybeRebuild(engineType);
         return;
       }
       indexer.index(context);
@@ -67,6 +70,9 @@ public class IndexListener {
       logger.error(msg, ex);
       throw new IndexingException(msg);
     }
+    // writer is committed and closed with the context, let open searchers see the new index
+    searcherRegistry.maybeRefresh(engineType);
+    suggesterRegistry.maybeRebuild(engineType);
   }
 
 }
@@ -0,0 +1,29 @@
+package com.github.sparrow.lucene;
+
+/**
+ * A single physical lucene index of an engine, with its own directory, writer and searcher. <br>
+ * An engine is one index stored in {index-path}/{engine}, unless tweets are split into time partitions
+ * and/or hash shards, stored in {index-path}/tweets/{partition}/shard-{n}.
+ *
+ * @param partition time bucket of the shard, see {@link PartitionGranularity}; null when not partitioned
+ * @param shard     hash shard within the partition; null when not hash sharded
+ */
+public record IndexShard(EngineType engineType, String partition, Integer shard) {
+
+  public static IndexShard of(EngineType engineType) {
+    return new IndexShard(engineType, null, null);
+  }
+
+  public String path() {
+    StringBuilder path = new StringBuilder(engineType.getName());
+    if (partition != null) path.append('/').append(partition);
+    if (shard != null) path.append("/shard-").append(shard);
+    return path.toString();
+  }
+
+  @Override
+  public String toString() {
+    return path();
+  }
+
+}
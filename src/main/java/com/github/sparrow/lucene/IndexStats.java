@@ -0,0 +1,112 @@
+package com.github.sparrow.lucene;
+
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.FilterLeafReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.PointValues;
+import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.index.SegmentReader;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.FilterDirectory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Statistics of an engine's index as seen by a searcher, read from the reader and segment metadata only. <br>
+ * Nothing is decoded per document, so the cost grows with the number of segments and fields, not with the docs.
+ *
+ * @param lastCommit time of the latest commit over all the shards, null when the index is not on the file system
+ */
+public record IndexStats(String engine, int shards, int numDocs, int maxDoc, double deletedDocsRatio, long sizeInBytes,
+                         Instant lastCommit, List<SegmentStats> segments, List<FieldStats> fields) {
+
+  /**
+   * @param shard path of the shard holding the segment, see {@link IndexShard#path()}
+   */
+  public record SegmentStats(String shard, String name, int numDocs, int maxDoc, long sizeInBytes) {
+  }
+
+  /**
+   * Statistics summed over the segments; {@code terms} is the sum of the unique terms of every segment, so an upper
+   * bound of the unique terms of the field, and -1 when a segment does not know its count
+   */
+  public record FieldStats(String name, int docCount, long terms, long sumDocFreq, long sumTotalTermFreq) {
+  }
+
+  public static IndexStats of(EngineType engineType, IndexSearcher searcher) throws IOException {
+    List<IndexShard> indexShards = searcher instanceof ShardedIndexSearcher sharded ? sharded.getIndexShards() : List.of(IndexShard.of(engineType));
+    List<IndexSearcher> shardSearchers = searcher instanceof ShardedIndexSearcher sharded ? sharded.getShards() : List.of(searcher);
+    List<SegmentStats> segments = new ArrayList<>();
+    Map<String, FieldStats> fields = new TreeMap<>();
+    long sizeInBytes = 0;
+    Instant lastCommit = null;
+    for (int i = 0; i < shardSearchers.size(); i++) {
+      DirectoryReader reader = (DirectoryReader) shardSearchers.get(i).getIndexReader();
+      Instant commit = lastCommit(reader.directory());
+      if (commit != null && (lastCommit == null || commit.isAfter(lastCommit))) lastCommit = commit;
+      for (LeafReaderContext leaf : reader.leaves()) {
+        SegmentStats segment = segmentStats(indexShards.get(i), leaf.reader());
+        sizeInBytes += segment.sizeInBytes();
+        segments.add(segment);
+        addFieldStats(fields, leaf.reader());
+      }
+    }
+    IndexReader reader = searcher.getIndexReader();
+    double deletedDocsRatio = reader.maxDoc() == 0 ? 0 : reader.numDeletedDocs() / (double) reader.maxDoc();
+    return new IndexStats(engineType.getName(), indexShards.size(), reader.numDocs(), reader.maxDoc(), deletedDocsRatio,
+      sizeInBytes, lastCommit, segments, List.copyOf(fields.values()));
+  }
+
+  private static SegmentStats segmentStats(IndexShard shard, LeafReader leafReader) throws IOException {
+    LeafReader unwrapped = FilterLeafReader.unwrap(leafReader);
+    if (unwrapped instanceof SegmentReader segmentReader) {
+      return new SegmentStats(shard.path(), segmentReader.getSegmentName(), leafReader.numDocs(), leafReader.maxDoc(),
+        segmentReader.getSegmentInfo().sizeInBytes());
+    }
+    return new SegmentStats(shard.path(), null, leafReader.numDocs(), leafReader.maxDoc(), -1);
+  }
+
+  private static void addFieldStats(Map<String, FieldStats> fields, LeafReader leafReader) throws IOException {
+    for (FieldInfo fieldInfo : leafReader.getFieldInfos()) {
+      Terms terms = leafReader.terms(fieldInfo.name);
+      FieldStats segment;
+      if (terms != null) {
+        segment = new FieldStats(fieldInfo.name, terms.getDocCount(), terms.size(), terms.getSumDocFreq(), terms.getSumTotalTermFreq());
+      } else {
+        // doc values and points only fields, e.g. numbers, have no terms
+        PointValues points = leafReader.getPointValues(fieldInfo.name);
+        segment = new FieldStats(fieldInfo.name, points == null ? 0 : points.getDocCount(), 0, 0, 0);
+      }
+      fields.merge(fieldInfo.name, segment, IndexStats::sum);
+    }
+  }
+
+  private static FieldStats sum(FieldStats f1, FieldStats f2) {
+    long terms = f1.terms() < 0 || f2.terms() < 0 ? -1 : f1.terms() + f2.terms();
+    return new FieldStats(f1.name(), f1.docCount() + f2.docCount(), terms,
+      f1.sumDocFreq() + f2.sumDocFreq(), f1.sumTotalTermFreq() + f2.sumTotalTermFreq());
+  }
+
+  /**
+   * Modification time of the latest segments_N file, null for an empty or in memory directory
+   */
+  private static Instant lastCommit(Directory directory) throws IOException {
+    if (!(FilterDirectory.unwrap(directory) instanceof FSDirectory fsDirectory)) return null;
+    String segmentsFile = SegmentInfos.getLastCommitSegmentsFileName(directory);
+    if (segmentsFile == null) return null;
+    return Files.getLastModifiedTime(fsDirectory.getDirectory().resolve(segmentsFile)).toInstant();
+  }
+
+}
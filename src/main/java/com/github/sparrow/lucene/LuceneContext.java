@@ -6,9 +6,11 @@ import lombok.Setter;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.IOUtils;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.Map;
 
 @Getter
 @Setter
@@ -17,18 +19,25 @@ public class LuceneContext implements Closeable {
 
   private Directory directory;
   private IndexWriter writer;
+  /// shared, see {@link AnalyzerProvider}, it is not closed along with the context
   private Analyzer analyzer;
+  /// writer and directory are shared with the near-real-time searchers, they outlive this context
+  private boolean nrt;
+  /// contexts of the shards when the engine is split into several, directory and writer of the engine itself are null then
+  private Map<IndexShard, LuceneContext> shards;
 
   @Override
   public void close() throws IOException {
-    if (analyzer != null) analyzer.close();
+    if (shards != null) IOUtils.close(shards.values());
+    if (nrt) return;
     if (writer != null) writer.close();
     if (directory != null) directory.close();
   }
 
   @Override
   public String toString() {
-    return "Index Directory : " + directory + " IndexWriter :" + writer + " Analyzer : " + analyzer;
+    return "Index Directory : " + directory + " IndexWriter :" + writer + " Analyzer : " + analyzer + " NRT : " + nrt
+      + (shards == null ? "" : " Shards : " + shards.keySet());
   }
 
 }
@@ -1,11 +1,29 @@
 package com.github.sparrow.lucene;
 
+import com.github.sparrow.lucene.engines.TweetsEngine;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.codecs.lucene101.Lucene101Codec;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexFileNames;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.SegmentCommitInfo;
+import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.store.ByteBuffersDirectory;
 import org.apache.lucene.store.Directory;
-import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.FilterDirectory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.MMapDirectory;
+import org.apache.lucene.store.NIOFSDirectory;
+import org.apache.lucene.store.NRTCachingDirectory;
+import org.apache.lucene.store.ReadAdvice;
+import org.apache.lucene.util.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -14,6 +32,20 @@ import org.springframework.stereotype.Component;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 @Component
 @PropertySource("classpath:sparrow.properties")
@@ -23,9 +55,71 @@ public class LuceneContextFactory {
   private static final Logger logger = LoggerFactory.getLogger(LuceneContextFactory.class);
 
   private final AnalyzerProvider analyzerProvider;
+  /// long-lived indexing contexts, one per shard, when running in near-real-time mode
+  private final Map<IndexShard, LuceneContext> nrtContexts = new ConcurrentHashMap<>();
+  /// indexes of the {@code index.directory.ram.engines}, kept on the heap for the life of the application
+  private final Map<IndexShard, Directory> memoryDirectories = new ConcurrentHashMap<>();
+  /// time partitions of the tweets found on disk or created by the indexer
+  private final NavigableSet<String> tweetPartitions = new ConcurrentSkipListSet<>();
+  private final ScheduledExecutorService committer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "nrt-committer");
+    thread.setDaemon(true);
+    return thread;
+  });
 
   @Value("${index.path}")
   private String indexPath;
+  @Getter
+  @Value("${index.nrt.enabled}")
+  private boolean nrtEnabled;
+  @Value("${index.nrt.commit.interval.sec}")
+  private long commitIntervalSec;
+  @Value("${index.directory.ram.engines}")
+  private Set<EngineType> ramEngines;
+  @Value("${index.directory.nio.engines}")
+  private Set<EngineType> nioEngines;
+  @Value("${index.directory.preload.engines}")
+  private Set<EngineType> preloadEngines;
+  @Value("${index.directory.preload.extensions}")
+  private Set<String> preloadExtensions;
+  @Value("${index.directory.random.engines}")
+  private Set<EngineType> randomAccessEngines;
+  @Value("${index.directory.sequential.engines}")
+  private Set<EngineType> sequentialAccessEngines;
+  @Value("${index.directory.nrt.cache.engines}")
+  private Set<EngineType> nrtCacheEngines;
+  @Value("${index.directory.nrt.cache.max.merge.mb}")
+  private double nrtCacheMaxMergeSizeMB;
+  @Value("${index.directory.nrt.cache.max.mb}")
+  private double nrtCacheMaxCachedMB;
+  /// engines whose stored fields are compressed with DEFLATE rather than LZ4, smaller but slower to hydrate
+  @Value("${index.stored.compression.engines}")
+  private Set<EngineType> storedCompressionEngines;
+  @Getter
+  @Value("${twitter.index.shards}")
+  private int tweetShards;
+  @Getter
+  @Value("${twitter.index.partition}")
+  private PartitionGranularity tweetPartitioning;
+
+  @PostConstruct
+  public void scheduleCommits() {
+    if (!nrtEnabled) return;
+    committer.scheduleWithFixedDelay(this::commitNrtWriters, commitIntervalSec, commitIntervalSec, TimeUnit.SECONDS);
+  }
+
+  @PostConstruct
+  public void loadPartitions() {
+    if (tweetPartitioning == PartitionGranularity.NONE) return;
+    File[] partitionDirs = new File(createLuceneIndexDir() + EngineType.TWEETS.getName()).listFiles(File::isDirectory);
+    if (partitionDirs == null) return;
+    for (File partitionDir : partitionDirs) {
+      if (tweetPartitioning.isPartition(partitionDir.getName())) {
+        tweetPartitions.add(partitionDir.getName());
+      }
+    }
+    logger.info("Found {} {} partitions of {}", tweetPartitions.size(), tweetPartitioning, EngineType.TWEETS.getName());
+  }
 
   /**
    * Context to save the lucene indexes in ~/lucene/search-index/{index-name}
@@ -34,25 +128,100 @@ public class LuceneContextFactory {
     return createLuceneContext(engineType, luceneMode, true);
   }
 
+  /**
+   * A context spanning all the shards of the engine, see {@link LuceneContext#getShards()}
+   */
   public LuceneContext createLuceneContext(EngineType engineType, LuceneMode luceneMode, Boolean stemming) throws IOException {
-    logger.info("Creating Lucene context for {} in {} mode", engineType.getName(), luceneMode);
-    final String luceneIndexPath = createLuceneIndexDir();
-    File indexDir = new File(luceneIndexPath + engineType.getName());
-    if (!indexDir.exists() && !indexDir.mkdirs()) {
-      logger.error("Error creating index directory {}", luceneIndexPath);
-      throw new IOException();
+    if (!isSharded(engineType)) {
+      return createLuceneContext(IndexShard.of(engineType), luceneMode, stemming);
     }
-    Directory luceneDirectory = FSDirectory.open(indexDir.toPath());
-    logger.info("Lucene directory : {}", luceneDirectory);
+    Map<IndexShard, LuceneContext> shardContexts = new LinkedHashMap<>();
+    try {
+      for (IndexShard shard : getShards(engineType)) {
+        shardContexts.put(shard, createLuceneContext(shard, luceneMode, stemming));
+      }
+    } catch (IOException ioe) {
+      IOUtils.closeWhileHandlingException(shardContexts.values());
+      throw ioe;
+    }
+    return LuceneContext.builder()
+      .shards(shardContexts)
+      .build();
+  }
+
+  /**
+   * Only tweets can be split, into {@code twitter.index.partition} time partitions of {@code twitter.index.shards}
+   * hash shards each. Documents are routed by both, so changing either needs a re-index.
+   */
+  public boolean isSharded(EngineType engineType) {
+    return engineType == EngineType.TWEETS && (tweetShards > 1 || tweetPartitioning != PartitionGranularity.NONE);
+  }
+
+  /**
+   * All the shards of an engine, newest partition first and in routing order within a partition
+   */
+  public List<IndexShard> getShards(EngineType engineType) {
+    if (!isSharded(engineType) || tweetPartitioning == PartitionGranularity.NONE) {
+      return getShards(engineType, null);
+    }
+    List<IndexShard> shards = new ArrayList<>();
+    for (String partition : tweetPartitions.descendingSet()) {
+      shards.addAll(getShards(engineType, partition));
+    }
+    return shards;
+  }
 
+  /**
+   * The hash shards of a single time partition, in routing order
+   */
+  public List<IndexShard> getShards(EngineType engineType, String partition) {
+    if (!isSharded(engineType)) return List.of(IndexShard.of(engineType));
+    if (tweetShards <= 1) return List.of(new IndexShard(engineType, partition, null));
+    List<IndexShard> shards = new ArrayList<>(tweetShards);
+    for (int i = 0; i < tweetShards; i++) {
+      shards.add(new IndexShard(engineType, partition, i));
+    }
+    return shards;
+  }
+
+  /**
+   * Registers the time partitions about to be indexed, before their contexts are created
+   */
+  public void addPartitions(EngineType engineType, Collection<String> partitions) {
+    if (!isSharded(engineType) || tweetPartitioning == PartitionGranularity.NONE) return;
+    partitions.stream().filter(Objects::nonNull).forEach(tweetPartitions::add);
+  }
+
+  /**
+   * Only the newest time partition is written and searched in near-real-time. Older partitions are read-only
+   * once indexed, and searched from their last commit. A partition that already has a near-real-time writer
+   * keeps it until shutdown, even after a newer partition shows up.
+   */
+  public boolean isNrt(IndexShard shard) {
+    if (!nrtEnabled) return false;
+    return shard.partition() == null || nrtContexts.containsKey(shard)
+      || (!tweetPartitions.isEmpty() && shard.partition().equals(tweetPartitions.last()));
+  }
+
+  public LuceneContext createLuceneContext(IndexShard shard, LuceneMode luceneMode, Boolean stemming) throws IOException {
+    logger.info("Creating Lucene context for {} in {} mode", shard, luceneMode);
+    EngineType engineType = shard.engineType();
+    if (LuceneMode.INDEXING.equals(luceneMode) && isNrt(shard)) {
+      LuceneContext shared = getNrtContext(shard);
+      return LuceneContext.builder()
+        .directory(shared.getDirectory())
+        .writer(shared.getWriter())
+        .analyzer(shared.getAnalyzer())
+        .nrt(true)
+        .build();
+    }
+
+    Directory luceneDirectory = openDirectory(shard);
     Analyzer analyzer = analyzerProvider.getAnalyzer(engineType, luceneMode, stemming);
     if (LuceneMode.INDEXING.equals(luceneMode)) {
-      IndexWriterConfig config = new IndexWriterConfig(analyzer);
-      config.setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
-      IndexWriter writer = new IndexWriter(luceneDirectory, config);
       return LuceneContext.builder()
         .directory(luceneDirectory)
-        .writer(writer)
+        .writer(openWriter(engineType, luceneDirectory, analyzer))
         .analyzer(analyzer)
         .build();
     }
@@ -64,6 +233,187 @@ public class LuceneContextFactory {
       .build();
   }
 
+  /**
+   * The writer shared by indexers and near-real-time searchers of the shard, opened on first use
+   */
+  public IndexWriter getNrtWriter(IndexShard shard) throws IOException {
+    return getNrtContext(shard).getWriter();
+  }
+
+  /**
+   * Opens the index directory of the shard, creating it on the first run. <br>
+   * Engines listed in {@code index.directory.ram.engines} are small enough to be indexed from their dataset on every
+   * start, their index only lives on the heap and is shared by every context, closing a context leaves it open.
+   */
+  public Directory openDirectory(IndexShard shard) throws IOException {
+    if (ramEngines.contains(shard.engineType())) {
+      return new FilterDirectory(memoryDirectories.computeIfAbsent(shard, s -> new ByteBuffersDirectory())) {
+        @Override
+        public void close() {
+        }
+      };
+    }
+    final String luceneIndexPath = createLuceneIndexDir();
+    File indexDir = new File(luceneIndexPath + shard.path());
+    if (!indexDir.exists() && !indexDir.mkdirs()) {
+      logger.error("Error creating index directory {}", luceneIndexPath);
+      throw new IOException();
+    }
+    Directory luceneDirectory = openFSDirectory(shard.engineType(), indexDir.toPath());
+    logger.info("Lucene directory : {}", luceneDirectory);
+    return luceneDirectory;
+  }
+
+  /**
+   * A {@link NIOFSDirectory} for the {@code index.directory.nio.engines}, a {@link MMapDirectory} otherwise. <br>
+   * Files with one of the {@code index.directory.preload.extensions}, e.g. the terms index, norms and doc values that
+   * every query touches, are loaded into the page cache when the {@code index.directory.preload.engines} open them.
+   * Searches of the {@code index.directory.random.engines} and {@code index.directory.sequential.engines} advise the
+   * OS of their access pattern, instead of leaving the read-ahead of every file to the codec.
+   */
+  private Directory openFSDirectory(EngineType engineType, Path path) throws IOException {
+    if (nioEngines.contains(engineType)) return new NIOFSDirectory(path);
+    MMapDirectory mmapDirectory = new MMapDirectory(path);
+    if (preloadEngines.contains(engineType)) {
+      mmapDirectory.setPreload((fileName, context) -> {
+        // segments_N and the lock have no extension
+        String extension = IndexFileNames.getExtension(fileName);
+        return extension != null && preloadExtensions.contains(extension);
+      });
+    }
+    if (randomAccessEngines.contains(engineType)) return new ReadAdviceDirectory(mmapDirectory, ReadAdvice.RANDOM);
+    if (sequentialAccessEngines.contains(engineType)) return new ReadAdviceDirectory(mmapDirectory, ReadAdvice.SEQUENTIAL);
+    return mmapDirectory;
+  }
+
+  /**
+   * The shared writer of the {@code index.directory.nrt.cache.engines} keeps its small flushed segments on the heap
+   * until they are merged away or committed, so reopening the near-real-time searchers does not hit the disk
+   */
+  private Directory cacheNrtSegments(IndexShard shard, Directory directory) {
+    if (!nrtCacheEngines.contains(shard.engineType()) || ramEngines.contains(shard.engineType())) return directory;
+    return new NRTCachingDirectory(directory, nrtCacheMaxMergeSizeMB, nrtCacheMaxCachedMB);
+  }
+
+  /**
+   * Opens the files read by searches with the given advice; merges and flushes, as well as the files only read once,
+   * keep the advice of their own context
+   */
+  private static class ReadAdviceDirectory extends FilterDirectory {
+    private final ReadAdvice readAdvice;
+
+    private ReadAdviceDirectory(Directory in, ReadAdvice readAdvice) {
+      super(in);
+      this.readAdvice = readAdvice;
+    }
+
+    @Override
+    public IndexInput openInput(String name, IOContext context) throws IOException {
+      if (context == IOContext.READONCE) return in.openInput(name, context);
+      return in.openInput(name, context.withReadAdvice(readAdvice));
+    }
+
+    @Override
+    public String toString() {
+      return "ReadAdviceDirectory(" + readAdvice + ", " + in + ")";
+    }
+  }
+
+  private LuceneContext getNrtContext(IndexShard shard) throws IOException {
+    LuceneContext shared = nrtContexts.get(shard);
+    if (shared != null) return shared;
+    synchronized (nrtContexts) {
+      shared = nrtContexts.get(shard);
+      if (shared == null) {
+        Directory luceneDirectory = cacheNrtSegments(shard, openDirectory(shard));
+        Analyzer analyzer = analyzerProvider.getAnalyzer(shard.engineType(), LuceneMode.INDEXING, true);
+        try {
+          shared = LuceneContext.builder()
+            .directory(luceneDirectory)
+            .writer(openWriter(shard.engineType(), luceneDirectory, analyzer))
+            .analyzer(analyzer)
+            .build();
+        } catch (IOException ioe) {
+          luceneDirectory.close();
+          throw ioe;
+        }
+        nrtContexts.put(shard, shared);
+        logger.info("Opened near-real-time writer for {}", shard);
+      }
+      return shared;
+    }
+  }
+
+  private IndexWriter openWriter(EngineType engineType, Directory directory, Analyzer analyzer) throws IOException {
+    IndexWriterConfig config = new IndexWriterConfig(analyzer);
+    config.setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
+    config.setCodec(new Lucene101Codec(storedCompressionEngines.contains(engineType)
+      ? Lucene101Codec.Mode.BEST_COMPRESSION : Lucene101Codec.Mode.BEST_SPEED));
+    Sort indexSort = indexSort(engineType);
+    if (indexSort != null) config.setIndexSort(indexSort);
+    boolean rebuild = hasOtherIndexSort(directory, indexSort);
+    if (rebuild) {
+      logger.warn("The {} index in {} was written with another index sort, it is emptied to be indexed again", engineType.getName(), directory);
+      config.setOpenMode(IndexWriterConfig.OpenMode.CREATE);
+    }
+    IndexWriter writer = new IndexWriter(directory, config);
+    // the empty commit replaces the old one right away, so the indexer finds nothing indexed
+    if (rebuild) writer.commit();
+    return writer;
+  }
+
+  /**
+   * A writer can not append to segments sorted otherwise, or not sorted at all, so such an index is rebuilt
+   */
+  private static boolean hasOtherIndexSort(Directory directory, Sort indexSort) throws IOException {
+    if (!DirectoryReader.indexExists(directory)) return false;
+    for (SegmentCommitInfo segment : SegmentInfos.readLatestCommit(directory)) {
+      if (!Objects.equals(segment.info.getIndexSort(), indexSort)) return true;
+    }
+    return false;
+  }
+
+  /**
+   * Tweets are kept newest first within every segment, so searches sorted by date stop collecting a segment
+   * once the page is full. <br>
+   * The sort of an existing index can not be changed, an index written without it is emptied and indexed again.
+   */
+  private static Sort indexSort(EngineType engineType) {
+    return engineType == EngineType.TWEETS ? TweetsEngine.NEWEST_FIRST : null;
+  }
+
+  /**
+   * Near-real-time searchers already see uncommitted documents, commits only make them durable
+   */
+  private void commitNrtWriters() {
+    for (Map.Entry<IndexShard, LuceneContext> entry : nrtContexts.entrySet()) {
+      IndexWriter writer = entry.getValue().getWriter();
+      try {
+        if (writer.isOpen() && writer.hasUncommittedChanges()) {
+          writer.commit();
+          logger.debug("Committed {} index", entry.getKey());
+        }
+      } catch (IOException ioe) {
+        logger.error("Failed to commit {} index : {}", entry.getKey(), ioe.getMessage(), ioe);
+      }
+    }
+  }
+
+  @PreDestroy
+  public void closeNrtContexts() {
+    committer.shutdownNow();
+    synchronized (nrtContexts) {
+      for (Map.Entry<IndexShard, LuceneContext> entry : nrtContexts.entrySet()) {
+        try {
+          entry.getValue().close(); // commits on close
+        } catch (IOException ioe) {
+          logger.error("Failed to close {} writer : {}", entry.getKey(), ioe.getMessage(), ioe);
+        }
+      }
+      nrtContexts.clear();
+    }
+  }
+
   private String createLuceneIndexDir() {
     return System.getProperty("user.home") + indexPath;
   }
@@ -0,0 +1,76 @@
+package com.github.sparrow.lucene;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.temporal.IsoFields;
+import java.util.regex.Pattern;
+
+/**
+ * Time buckets the tweets are partitioned into by their date, every bucket being an index of its own. <br>
+ * Partition names sort chronologically: 2024-05-13 by day, 2024-W20 by ISO week and 2024-05 by month.
+ */
+public enum PartitionGranularity {
+  NONE(null),
+  DAY(Pattern.compile("\\d{4}-\\d{2}-\\d{2}")),
+  WEEK(Pattern.compile("\\d{4}-W\\d{2}")),
+  MONTH(Pattern.compile("\\d{4}-\\d{2}"));
+
+  /// tweets without a date fall into the partition of the epoch
+  private static final LocalDate UNDATED = LocalDate.EPOCH;
+
+  private final Pattern pattern;
+
+  PartitionGranularity(Pattern pattern) {
+    this.pattern = pattern;
+  }
+
+  /**
+   * @return null when not partitioned
+   */
+  public String partitionOf(LocalDateTime dateTime) {
+    LocalDate date = dateTime == null ? UNDATED : dateTime.toLocalDate();
+    return switch (this) {
+      case NONE -> null;
+      case DAY -> date.toString();
+      case WEEK -> String.format("%04d-W%02d", date.get(IsoFields.WEEK_BASED_YEAR), date.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR));
+      case MONTH -> YearMonth.from(date).toString();
+    };
+  }
+
+  public boolean isPartition(String name) {
+    return pattern != null && pattern.matcher(name).matches();
+  }
+
+  /**
+   * Whether any day of the partition falls within [since, until], both bounds being optional
+   */
+  public boolean overlaps(String partition, LocalDate since, LocalDate until) {
+    if (partition == null || this == NONE) return true;
+    LocalDate start = start(partition);
+    return (since == null || end(start).isAfter(since)) && (until == null || !start.isAfter(until));
+  }
+
+  private LocalDate start(String partition) {
+    return switch (this) {
+      case NONE -> LocalDate.MIN;
+      case DAY -> LocalDate.parse(partition);
+      case WEEK -> LocalDate.of(Integer.parseInt(partition.substring(0, 4)), 1, 4)
+        .with(IsoFields.WEEK_OF_WEEK_BASED_YEAR, Integer.parseInt(partition.substring(6)))
+        .with(DayOfWeek.MONDAY);
+      case MONTH -> YearMonth.parse(partition).atDay(1);
+    };
+  }
+
+  /// first day after the partition starting at start
+  private LocalDate end(LocalDate start) {
+    return switch (this) {
+      case NONE -> LocalDate.MAX;
+      case DAY -> start.plusDays(1);
+      case WEEK -> start.plusWeeks(1);
+      case MONTH -> start.plusMonths(1);
+    };
+  }
+
+}
@@ -0,0 +1,48 @@
+package com.github.sparrow.lucene;
+
+import lombok.RequiredArgsConstructor;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.Query;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Parses the query strings of the engines with pooled {@link QueryParser}s, so a search reuses a warm parser over a
+ * shared analyzer instead of building both every time. <br>
+ * A QueryParser is not thread-safe, but parses any number of queries one after the other. The pools are shared by
+ * all threads, searches run as short tasks on the search executor, possibly a virtual thread each, so a parser kept
+ * per thread would hardly ever be reused.
+ */
+@Component
+@RequiredArgsConstructor
+public class QueryParsers {
+
+  /// idle parsers kept per pool, a parser taken beyond them is dropped once done
+  private static final int MAX_IDLE_PARSERS = Runtime.getRuntime().availableProcessors();
+
+  private final AnalyzerProvider analyzerProvider;
+  private final Map<ParserKey, BlockingQueue<QueryParser>> parsers = new ConcurrentHashMap<>();
+
+  private record ParserKey(EngineType engineType, String defaultField, boolean stemming) {
+  }
+
+  public Query parse(EngineType engineType, String defaultField, boolean stemming, String query) throws ParseException {
+    ParserKey key = new ParserKey(engineType, defaultField, stemming);
+    BlockingQueue<QueryParser> pool = parsers.computeIfAbsent(key, k -> new ArrayBlockingQueue<>(MAX_IDLE_PARSERS));
+    QueryParser parser = pool.poll();
+    if (parser == null) {
+      parser = new QueryParser(defaultField, analyzerProvider.getAnalyzer(engineType, LuceneMode.SEARCHING, stemming));
+    }
+    try {
+      return parser.parse(query);
+    } finally {
+      pool.offer(parser);
+    }
+  }
+
+}
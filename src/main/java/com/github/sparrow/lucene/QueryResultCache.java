@@ -0,0 +1,187 @@
+package com.github.sparrow.lucene;
+
+import com.github.sparrow.lucene.entity.FacetCount;
+import com.github.sparrow.lucene.entity.SearchHit;
+import com.github.sparrow.lucene.entity.SearchQuery;
+import com.github.sparrow.lucene.entity.SearchResults;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+/**
+ * LRU cache of search results in front of the engines, bounded by the estimated heap size of the cached pages. <br>
+ * Entries are keyed by the reader versions of the shards they were searched on: as soon as a shard is searched
+ * on a newer version, all entries of its older versions are dropped, so a cached page is never staler than the
+ * searcher itself. Entries over shards that did not change, e.g. old time partitions, stay cached.
+ */
+@Component
+@PropertySource("classpath:sparrow.properties")
+public class QueryResultCache {
+
+  private static final Logger logger = LoggerFactory.getLogger(QueryResultCache.class);
+
+  private static final long ENTRY_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(CacheKey.class)
+    + RamUsageEstimator.shallowSizeOfInstance(SearchQuery.class)
+    + RamUsageEstimator.shallowSizeOfInstance(SearchResults.class)
+    + RamUsageEstimator.LINKED_HASHTABLE_RAM_BYTES_PER_ENTRY;
+  private static final long VERSION_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(Long.class)
+    + RamUsageEstimator.HASHTABLE_RAM_BYTES_PER_ENTRY;
+  private static final long FACET_COUNT_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(FacetCount.class)
+    + RamUsageEstimator.NUM_BYTES_OBJECT_REF;
+  private static final long HIT_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(SearchHit.class)
+    + RamUsageEstimator.NUM_BYTES_OBJECT_REF;
+
+  /// access ordered, so the eldest entry is the least recently used one
+  private final LinkedHashMap<CacheKey, CacheEntry> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private final Map<IndexShard, Long> versions = new HashMap<>();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+  private final LongAdder invalidations = new LongAdder();
+  private long ramBytesUsed;
+
+  @Value("${search.cache.enabled}")
+  private boolean enabled;
+  @Value("${search.cache.max.bytes}")
+  private long maxBytes;
+
+  private record CacheKey(EngineType engineType, Map<IndexShard, Long> versions, SearchQuery searchQuery) {
+  }
+
+  private record CacheEntry(SearchResults<?> results, long ramBytesUsed) {
+  }
+
+  public record Stats(long hits, long misses, long evictions, long invalidations,
+                      int entries, long ramBytesUsed, long maxBytes) {
+  }
+
+  /**
+   * Serves the page from the cache, or searches it with the engine and caches it. <br>
+   * Cached pages are shared between requests and must not be modified.
+   *
+   * @param hitWeigher estimated heap size of a single hit
+   */
+  @SuppressWarnings("unchecked")
+  public <T> SearchResults<T> search(EngineType engineType, Searcher<T> engine, IndexSearcher searcher,
+                                     SearchQuery searchQuery, ToLongFunction<T> hitWeigher) {
+    if (!enabled) {
+      return engine.search(searcher, searchQuery);
+    }
+    CacheKey key = new CacheKey(engineType, ShardedIndexSearcher.versions(engineType, searcher), normalize(searchQuery));
+    synchronized (this) {
+      if (isStale(key)) {
+        // a page over a pinned, older searcher; only the latest version is worth caching
+        misses.increment();
+        return engine.search(searcher, searchQuery);
+      }
+      CacheEntry entry = entries.get(key);
+      if (entry != null) {
+        hits.increment();
+        return (SearchResults<T>) entry.results();
+      }
+    }
+    misses.increment();
+    SearchResults<T> results = engine.search(searcher, key.searchQuery());
+    put(key, results, hitWeigher);
+    return results;
+  }
+
+  public synchronized Stats stats() {
+    return new Stats(hits.sum(), misses.sum(), evictions.sum(), invalidations.sum(), entries.size(), ramBytesUsed, maxBytes);
+  }
+
+  public synchronized void clear() {
+    entries.clear();
+    ramBytesUsed = 0;
+  }
+
+  private <T> void put(CacheKey key, SearchResults<T> results, ToLongFunction<T> hitWeigher) {
+    long entryBytes = ENTRY_RAM_BYTES_USED + key.versions().size() * VERSION_RAM_BYTES_USED
+      + RamUsageEstimator.sizeOf(key.searchQuery().getQuery())
+      + RamUsageEstimator.sizeOf(key.searchQuery().getUsername()) + RamUsageEstimator.sizeOf(key.searchQuery().getCursor())
+      + RamUsageEstimator.sizeOf(results.getCursor());
+    for (SearchHit<T> hit : results.getHits()) {
+      entryBytes += HIT_RAM_BYTES_USED + hitWeigher.applyAsLong(hit.getHit());
+    }
+    if (results.getFacets() != null) {
+      for (List<FacetCount> facet : results.getFacets().values()) {
+        for (FacetCount count : facet) {
+          entryBytes += FACET_COUNT_RAM_BYTES_USED + RamUsageEstimator.sizeOf(count.value());
+        }
+      }
+    }
+    if (entryBytes > maxBytes) {
+      logger.debug("Not caching {} results of {} bytes", key.engineType().getName(), entryBytes);
+      return;
+    }
+    synchronized (this) {
+      if (isStale(key)) return;
+      CacheEntry previous = entries.put(key, new CacheEntry(results, entryBytes));
+      if (previous != null) ramBytesUsed -= previous.ramBytesUsed();
+      ramBytesUsed += entryBytes;
+      Iterator<CacheEntry> eldest = entries.values().iterator();
+      while (ramBytesUsed > maxBytes && eldest.hasNext()) {
+        ramBytesUsed -= eldest.next().ramBytesUsed();
+        eldest.remove();
+        evictions.increment();
+      }
+    }
+  }
+
+  /**
+   * Moves the shards to the versions of the key, invalidating the entries of their older versions
+   *
+   * @return true when the key has an older version of a shard than the one already seen
+   */
+  private boolean isStale(CacheKey key) {
+    boolean stale = false;
+    List<IndexShard> refreshed = new ArrayList<>();
+    for (Map.Entry<IndexShard, Long> shardVersion : key.versions().entrySet()) {
+      Long latest = versions.get(shardVersion.getKey());
+      if (latest != null && shardVersion.getValue() < latest) {
+        stale = true;
+      } else if (latest == null || shardVersion.getValue() > latest) {
+        versions.put(shardVersion.getKey(), shardVersion.getValue());
+        refreshed.add(shardVersion.getKey());
+      }
+    }
+    if (refreshed.isEmpty()) return stale;
+    Iterator<Map.Entry<CacheKey, CacheEntry>> iterator = entries.entrySet().iterator();
+    while (iterator.hasNext()) {
+      Map.Entry<CacheKey, CacheEntry> entry = iterator.next();
+      if (isOlder(entry.getKey(), refreshed)) {
+        ramBytesUsed -= entry.getValue().ramBytesUsed();
+        iterator.remove();
+        invalidations.increment();
+      }
+    }
+    return stale;
+  }
+
+  private boolean isOlder(CacheKey key, List<IndexShard> refreshed) {
+    for (IndexShard shard : refreshed) {
+      Long version = key.versions().get(shard);
+      if (version != null && version < versions.get(shard)) return true;
+    }
+    return false;
+  }
+
+  private SearchQuery normalize(SearchQuery searchQuery) {
+    String query = searchQuery.getQuery() == null ? null : searchQuery.getQuery().strip().replaceAll("\\s+", " ");
+    return searchQuery.toBuilder().query(query).build();
+  }
+
+}
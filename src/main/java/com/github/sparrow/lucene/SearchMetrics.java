@@ -0,0 +1,91 @@
+package com.github.sparrow.lucene;
+
+import org.apache.lucene.search.IndexSearcher;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Search latency per engine, split by whether the query was searched over a single slice or in parallel. <br>
+ * Latencies are bucketed by powers of two microseconds, so percentiles are reported as the bucket upper bound.
+ */
+@Component
+public class SearchMetrics {
+
+  private static final int BUCKETS = 40;
+
+  private final Map<String, LatencyRecorder> recorders = new ConcurrentHashMap<>();
+
+  public record LatencyStats(String engine, String mode, long count, double meanMs, double p50Ms, double p99Ms, double maxMs) {
+  }
+
+  public <T> T time(EngineType engineType, IndexSearcher searcher, Supplier<T> search) {
+    final long start = System.nanoTime();
+    try {
+      return search.get();
+    } finally {
+      record(engineType, searcher.getSlices().length > 1 ? "parallel" : "sequential", System.nanoTime() - start);
+    }
+  }
+
+  public void record(EngineType engineType, String mode, long tookNanos) {
+    recorders.computeIfAbsent(engineType.getName() + ":" + mode, key -> new LatencyRecorder(engineType.getName(), mode))
+      .record(tookNanos);
+  }
+
+  public List<LatencyStats> stats() {
+    List<LatencyStats> stats = new ArrayList<>();
+    for (LatencyRecorder recorder : recorders.values()) {
+      stats.add(recorder.stats());
+    }
+    stats.sort((s1, s2) -> s1.engine().equals(s2.engine()) ? s1.mode().compareTo(s2.mode()) : s1.engine().compareTo(s2.engine()));
+    return stats;
+  }
+
+  private static final class LatencyRecorder {
+    private final String engine;
+    private final String mode;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Long::max, 0L);
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+    private LatencyRecorder(String engine, String mode) {
+      this.engine = engine;
+      this.mode = mode;
+    }
+
+    private void record(long tookNanos) {
+      count.increment();
+      totalNanos.add(tookNanos);
+      maxNanos.accumulate(tookNanos);
+      long micros = Math.max(1, tookNanos / 1_000);
+      buckets.incrementAndGet(Math.min(BUCKETS - 1, 63 - Long.numberOfLeadingZeros(micros)));
+    }
+
+    private LatencyStats stats() {
+      long n = count.sum();
+      double mean = n == 0 ? 0 : totalNanos.sum() / (double) n / 1_000_000;
+      double max = maxNanos.get() / 1_000_000d;
+      return new LatencyStats(engine, mode, n, mean, percentile(n, 0.50, max), percentile(n, 0.99, max), max);
+    }
+
+    private double percentile(long n, double quantile, double max) {
+      long rank = (long) Math.ceil(n * quantile);
+      long seen = 0;
+      for (int i = 0; i < BUCKETS; i++) {
+        seen += buckets.get(i);
+        if (seen >= rank && seen > 0) return Math.min(max, (1L << (i + 1)) / 1_000d);
+      }
+      return 0;
+    }
+  }
+
+}
@@ -1,14 +1,27 @@
 package com.github.sparrow.lucene;
 
 import com.github.sparrow.lucene.entity.SearchQuery;
+import com.github.sparrow.lucene.entity.SearchResults;
+import org.apache.lucene.search.IndexSearcher;
 
-import java.util.List;
+import java.io.IOException;
+import java.util.Map;
 
 /**
- * Search from the lucene indexes.
+ * Search from the lucene indexes. <br>
+ * The searcher is acquired from {@link SearcherManagerRegistry} by the caller, who also releases it.
  */
 public interface Searcher<T> {
 
-  List<T> search(LuceneContext context, SearchQuery searchQuery);
+  EngineType getEngineType();
+
+  SearchResults<T> search(IndexSearcher searcher, SearchQuery searchQuery);
+
+  /**
+   * Texts worth completing a query prefix to, with their weights, see {@link SuggesterRegistry}
+   */
+  default Map<String, Long> suggestions(IndexSearcher searcher) throws IOException {
+    return Map.of();
+  }
 
 }
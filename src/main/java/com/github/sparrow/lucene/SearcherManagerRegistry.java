@@ -0,0 +1,318 @@
+package com.github.sparrow.lucene;
+
+import com.github.sparrow.exception.CursorExpiredException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.search.ControlledRealTimeReopenThread;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.SearcherFactory;
+import org.apache.lucene.search.SearcherLifetimeManager;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.store.Directory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Keeps one long-lived {@link SearcherManager} per index shard, so a search only acquires an already open
+ * {@link IndexSearcher} instead of opening the index directory and a fresh reader on every request. <br>
+ * Every acquired searcher must be handed back with {@link #release(EngineType, IndexSearcher)}. <br>
+ * In near-real-time mode the readers are opened from the shared {@link IndexWriter} and reopened by a
+ * {@link ControlledRealTimeReopenThread}, so indexed documents are searchable before they are committed. <br>
+ * Searchers handed out pages can be pinned with {@link #pin(EngineType, IndexSearcher)}, so the following pages
+ * are searched over the same point-in-time view even if the index has been refreshed in between. <br>
+ * Engines listed in {@code search.parallel.engines} get a {@link SlicedIndexSearcher}, which searches the slices
+ * of a query concurrently on the search executor. <br>
+ * Engines split into shards are searched through a {@link ShardedIndexSearcher} spanning a searcher of every shard. <br>
+ * Read-only time partitions are searched from their last commit, even in near-real-time mode.
+ *
+ * @see <a href="https://blog.mikemccandless.com/2011/11/near-real-time-readers-with-lucenes.html">Near-real-time readers</a>
+ * @see <a href="https://blog.mikemccandless.com/2011/09/lucenes-searchermanager-simplifies.html">SearcherManager</a>
+ */
+@Component
+@PropertySource("classpath:sparrow.properties")
+public class SearcherManagerRegistry {
+
+  private static final Logger logger = LoggerFactory.getLogger(SearcherManagerRegistry.class);
+
+  private final LuceneContextFactory contextFactory;
+  private final ExecutorService searchExecutor;
+  private final Map<IndexShard, ManagedSearcher> searchers = new ConcurrentHashMap<>();
+  private final ScheduledExecutorService refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "searcher-refresher");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  @Value("${searcher.refresh.interval.ms}")
+  private long refreshIntervalMs;
+  @Value("${index.nrt.stale.max.sec}")
+  private double targetMaxStaleSec;
+  @Value("${index.nrt.stale.min.sec}")
+  private double targetMinStaleSec;
+  @Value("${searcher.pin.max.age.sec}")
+  private double pinMaxAgeSec;
+  @Value("${search.parallel.engines}")
+  private Set<EngineType> parallelEngines;
+  @Value("${search.slice.max.docs}")
+  private int maxDocsPerSlice;
+  @Value("${search.slice.max.segments}")
+  private int maxSegmentsPerSlice;
+
+  public SearcherManagerRegistry(LuceneContextFactory contextFactory, @Qualifier("searchExecutor") ExecutorService searchExecutor) {
+    this.contextFactory = contextFactory;
+    this.searchExecutor = searchExecutor;
+  }
+
+  /// directory is only owned here for searchers opened from the last commit, reopenThread only exists in nrt mode
+  private record ManagedSearcher(Directory directory, SearcherManager manager,
+                                 ControlledRealTimeReopenThread<IndexSearcher> reopenThread,
+                                 SearcherLifetimeManager pinned) {
+  }
+
+  @PostConstruct
+  public void scheduleRefresh() {
+    refresher.scheduleWithFixedDelay(this::refreshAll, refreshIntervalMs, refreshIntervalMs, TimeUnit.MILLISECONDS);
+  }
+
+  public IndexSearcher acquire(EngineType engineType) throws IOException {
+    return acquire(engineType, null);
+  }
+
+  public IndexSearcher acquire(EngineType engineType, long[] versions) throws IOException {
+    return acquire(engineType, versions, shard -> true);
+  }
+
+  /**
+   * Acquires the searcher of an earlier page, which fails once that version has been pruned or the shards it was
+   * acquired over have changed. <br>
+   * A sharded engine is always acquired as a {@link ShardedIndexSearcher}, over one searcher per shard kept by the
+   * filter, so shards that can not match a query are never searched.
+   *
+   * @param versions reader versions of the shards, see {@link ShardedIndexSearcher#versions(IndexSearcher)}
+   * @throws CursorExpiredException if the versions are no longer pinned
+   */
+  public IndexSearcher acquire(EngineType engineType, long[] versions, Predicate<IndexShard> shardFilter) throws IOException {
+    List<IndexShard> shards = contextFactory.getShards(engineType).stream().filter(shardFilter).toList();
+    List<IndexSearcher> acquired = null;
+    if (versions != null) {
+      acquired = versions.length == shards.size() ? acquireShards(shards, versions) : null;
+      if (acquired == null) {
+        throw new CursorExpiredException("Cursor expired, the " + engineType.getName() + " searcher version "
+          + Arrays.toString(versions) + " is no longer pinned");
+      }
+    } else {
+      acquired = acquireShards(shards, null);
+    }
+    if (!contextFactory.isSharded(engineType)) return acquired.getFirst();
+    try {
+      return parallelEngines.contains(engineType)
+        ? new ShardedIndexSearcher(shards, acquired, searchExecutor, maxDocsPerSlice, maxSegmentsPerSlice)
+        : new ShardedIndexSearcher(shards, acquired, searchExecutor, Integer.MAX_VALUE, Integer.MAX_VALUE);
+    } catch (IOException ioe) {
+      releaseShards(shards, acquired);
+      throw ioe;
+    }
+  }
+
+  /**
+   * Keeps an acquired searcher around for {@code searcher.pin.max.age.sec} after it has been refreshed away
+   */
+  public void pin(EngineType engineType, IndexSearcher searcher) {
+    if (!(searcher instanceof ShardedIndexSearcher sharded)) {
+      pin(IndexShard.of(engineType), searcher);
+      return;
+    }
+    for (int i = 0; i < sharded.getShards().size(); i++) {
+      pin(sharded.getIndexShards().get(i), sharded.getShards().get(i));
+    }
+  }
+
+  public void release(EngineType engineType, IndexSearcher searcher) {
+    if (searcher == null) return;
+    if (!(searcher instanceof ShardedIndexSearcher sharded)) {
+      releaseShards(List.of(IndexShard.of(engineType)), List.of(searcher));
+      return;
+    }
+    try {
+      sharded.getIndexReader().close(); // gives back its references on the shard readers
+    } catch (IOException ioe) {
+      logger.warn("Failed to close {} reader : {}", engineType.getName(), ioe.getMessage());
+    }
+    releaseShards(sharded.getIndexShards(), sharded.getShards());
+  }
+
+  /**
+   * Picks up the latest commit without blocking searches; a no-op until the engine has been searched once
+   */
+  public void maybeRefresh(EngineType engineType) {
+    for (IndexShard shard : contextFactory.getShards(engineType)) {
+      maybeRefresh(shard);
+    }
+  }
+
+  /**
+   * Blocks until the searchers of the shard see the given indexing generation of its writer,
+   * for read-your-writes after an nrt update
+   */
+  public void waitForGeneration(IndexShard shard, long generation) throws InterruptedException {
+    ManagedSearcher managed = searchers.get(shard);
+    if (managed == null || managed.reopenThread() == null) return;
+    managed.reopenThread().waitForGeneration(generation);
+  }
+
+  /**
+   * One searcher per shard, all of the pinned versions or none
+   *
+   * @return null if any of the versions is no longer pinned
+   */
+  private List<IndexSearcher> acquireShards(List<IndexShard> shards, long[] versions) throws IOException {
+    List<IndexSearcher> acquired = new ArrayList<>(shards.size());
+    try {
+      for (int i = 0; i < shards.size(); i++) {
+        ManagedSearcher managed = getManagedSearcher(shards.get(i));
+        IndexSearcher searcher = versions == null ? managed.manager().acquire() : managed.pinned().acquire(versions[i]);
+        if (searcher == null) {
+          releaseShards(shards, acquired);
+          return null;
+        }
+        acquired.add(searcher);
+      }
+      return acquired;
+    } catch (IOException ioe) {
+      releaseShards(shards, acquired);
+      throw ioe;
+    }
+  }
+
+  private void pin(IndexShard shard, IndexSearcher searcher) {
+    ManagedSearcher managed = searchers.get(shard);
+    if (managed == null) return;
+    try {
+      managed.pinned().record(searcher);
+    } catch (IOException ioe) {
+      logger.warn("Failed to pin {} searcher : {}", shard, ioe.getMessage());
+    }
+  }
+
+  private void releaseShards(List<IndexShard> shards, List<IndexSearcher> shardSearchers) {
+    for (int i = 0; i < shardSearchers.size(); i++) {
+      ManagedSearcher managed = searchers.get(shards.get(i));
+      if (managed == null) continue;
+      try {
+        managed.manager().release(shardSearchers.get(i));
+      } catch (IOException ioe) {
+        logger.warn("Failed to release {} searcher : {}", shards.get(i), ioe.getMessage());
+      }
+    }
+  }
+
+  private void maybeRefresh(IndexShard shard) {
+    ManagedSearcher managed = searchers.get(shard);
+    if (managed == null) return;
+    try {
+      if (managed.manager().maybeRefresh()) {
+        logger.debug("Refreshed {} searcher", shard);
+      }
+    } catch (IOException ioe) {
+      logger.warn("Failed to refresh {} searcher : {}", shard, ioe.getMessage());
+    }
+  }
+
+  private void refreshAll() {
+    for (Map.Entry<IndexShard, ManagedSearcher> entry : searchers.entrySet()) {
+      if (entry.getValue().reopenThread() == null) {
+        maybeRefresh(entry.getKey());
+      }
+      try {
+        entry.getValue().pinned().prune(new SearcherLifetimeManager.PruneByAge(pinMaxAgeSec));
+      } catch (IOException ioe) {
+        logger.warn("Failed to prune pinned {} searchers : {}", entry.getKey(), ioe.getMessage());
+      }
+    }
+  }
+
+  private ManagedSearcher getManagedSearcher(IndexShard shard) throws IOException {
+    ManagedSearcher managed = searchers.get(shard);
+    if (managed != null) return managed;
+    synchronized (searchers) {
+      managed = searchers.get(shard);
+      if (managed == null) {
+        managed = contextFactory.isNrt(shard) ? openNrtSearcher(shard) : openSearcher(shard);
+        searchers.put(shard, managed);
+        logger.info("Opened searcher manager for {}", shard);
+      }
+      return managed;
+    }
+  }
+
+  private ManagedSearcher openSearcher(IndexShard shard) throws IOException {
+    Directory directory = contextFactory.openDirectory(shard);
+    try {
+      SearcherManager manager = new SearcherManager(directory, searcherFactory(shard.engineType()));
+      return new ManagedSearcher(directory, manager, null, new SearcherLifetimeManager());
+    } catch (IOException ioe) {
+      directory.close();
+      throw ioe;
+    }
+  }
+
+  private ManagedSearcher openNrtSearcher(IndexShard shard) throws IOException {
+    IndexWriter writer = contextFactory.getNrtWriter(shard);
+    SearcherManager manager = new SearcherManager(writer, searcherFactory(shard.engineType()));
+    ControlledRealTimeReopenThread<IndexSearcher> reopenThread =
+      new ControlledRealTimeReopenThread<>(writer, manager, targetMaxStaleSec, targetMinStaleSec);
+    reopenThread.setName("nrt-reopen-" + shard.path());
+    reopenThread.setDaemon(true);
+    reopenThread.start();
+    return new ManagedSearcher(null, manager, reopenThread, new SearcherLifetimeManager());
+  }
+
+  private SearcherFactory searcherFactory(EngineType engineType) {
+    if (!parallelEngines.contains(engineType)) return new SearcherFactory();
+    return new SearcherFactory() {
+      @Override
+      public IndexSearcher newSearcher(IndexReader reader, IndexReader previousReader) {
+        return new SlicedIndexSearcher(reader, searchExecutor, maxDocsPerSlice, maxSegmentsPerSlice);
+      }
+    };
+  }
+
+  @PreDestroy
+  public void close() {
+    refresher.shutdownNow();
+    synchronized (searchers) {
+      for (Map.Entry<IndexShard, ManagedSearcher> entry : searchers.entrySet()) {
+        ManagedSearcher managed = entry.getValue();
+        try {
+          if (managed.reopenThread() != null) managed.reopenThread().close();
+          managed.pinned().close();
+          managed.manager().close();
+          if (managed.directory() != null) managed.directory().close();
+        } catch (IOException ioe) {
+          logger.warn("Failed to close {} searcher : {}", entry.getKey(), ioe.getMessage());
+        }
+      }
+      searchers.clear();
+    }
+  }
+
+}
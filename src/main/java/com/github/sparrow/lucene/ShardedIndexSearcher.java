@@ -0,0 +1,89 @@
+package com.github.sparrow.lucene;
+
+import lombok.Getter;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.MultiReader;
+import org.apache.lucene.search.IndexSearcher;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Searches the shards of an engine as one index, over a {@link MultiReader} of the acquired shard searchers. <br>
+ * Every shard is searched in slices of its own, so a query fans out to all the shards concurrently on the search
+ * executor, and the collector manager's reduce merges the top hits of the shards into the global top n. <br>
+ * Doc ids are global, each shard's doc ids being offset by the docs of the shards before it.
+ */
+public class ShardedIndexSearcher extends IndexSearcher {
+
+  @Getter
+  private final List<IndexShard> indexShards;
+  @Getter
+  private final List<IndexSearcher> shards;
+  private final int maxDocsPerSlice;
+  private final int maxSegmentsPerSlice;
+
+  /**
+   * The reader takes a reference on every shard reader, which is only given back once the reader is closed
+   */
+  public ShardedIndexSearcher(List<IndexShard> indexShards, List<IndexSearcher> shards, Executor executor,
+                              int maxDocsPerSlice, int maxSegmentsPerSlice) throws IOException {
+    super(new MultiReader(shards.stream().map(IndexSearcher::getIndexReader).toArray(IndexReader[]::new), false), executor);
+    this.indexShards = List.copyOf(indexShards);
+    this.shards = List.copyOf(shards);
+    this.maxDocsPerSlice = maxDocsPerSlice;
+    this.maxSegmentsPerSlice = maxSegmentsPerSlice;
+  }
+
+  /**
+   * Slices never span shards; the segments of a shard are consecutive leaves of the multi reader
+   */
+  @Override
+  protected LeafSlice[] slices(List<LeafReaderContext> leaves) {
+    List<LeafSlice> slices = new ArrayList<>();
+    int from = 0;
+    for (IndexSearcher shard : shards) {
+      int to = from + shard.getIndexReader().leaves().size();
+      if (to > from) {
+        Collections.addAll(slices, slices(leaves.subList(from, to), maxDocsPerSlice, maxSegmentsPerSlice, false));
+      }
+      from = to;
+    }
+    return slices.toArray(new LeafSlice[0]);
+  }
+
+  /**
+   * Reader versions of the shards behind a searcher, in shard order; a plain searcher is a single shard
+   */
+  public static long[] versions(IndexSearcher searcher) {
+    if (!(searcher instanceof ShardedIndexSearcher sharded)) {
+      return new long[]{((DirectoryReader) searcher.getIndexReader()).getVersion()};
+    }
+    long[] versions = new long[sharded.shards.size()];
+    for (int i = 0; i < versions.length; i++) {
+      versions[i] = ((DirectoryReader) sharded.shards.get(i).getIndexReader()).getVersion();
+    }
+    return versions;
+  }
+
+  /**
+   * Reader version of every shard behind a searcher of the engine
+   */
+  public static Map<IndexShard, Long> versions(EngineType engineType, IndexSearcher searcher) {
+    long[] versions = versions(searcher);
+    if (!(searcher instanceof ShardedIndexSearcher sharded)) return Map.of(IndexShard.of(engineType), versions[0]);
+    Map<IndexShard, Long> shardVersions = new LinkedHashMap<>();
+    for (int i = 0; i < versions.length; i++) {
+      shardVersions.put(sharded.indexShards.get(i), versions[i]);
+    }
+    return shardVersions;
+  }
+
+}
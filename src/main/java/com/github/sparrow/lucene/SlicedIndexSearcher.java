@@ -0,0 +1,30 @@
+package com.github.sparrow.lucene;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.IndexSearcher;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Searches groups of segments (slices) concurrently on the search executor, one collector per slice. <br>
+ * Smaller slices spread a heavy query over more cores, at the cost of more collectors to reduce.
+ */
+public class SlicedIndexSearcher extends IndexSearcher {
+
+  private final int maxDocsPerSlice;
+  private final int maxSegmentsPerSlice;
+
+  public SlicedIndexSearcher(IndexReader reader, Executor executor, int maxDocsPerSlice, int maxSegmentsPerSlice) {
+    super(reader, executor);
+    this.maxDocsPerSlice = maxDocsPerSlice;
+    this.maxSegmentsPerSlice = maxSegmentsPerSlice;
+  }
+
+  @Override
+  protected LeafSlice[] slices(List<LeafReaderContext> leaves) {
+    return slices(leaves, maxDocsPerSlice, maxSegmentsPerSlice, false);
+  }
+
+}
@@ -0,0 +1,148 @@
+package com.github.sparrow.lucene;
+
+import com.github.sparrow.lucene.entity.SearchQuery;
+import com.github.sparrow.lucene.entity.SearchResults;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.spell.DirectSpellChecker;
+import org.apache.lucene.search.spell.SuggestMode;
+import org.apache.lucene.search.spell.SuggestWord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * "Did you mean" corrections of a query, spell checked with a {@link DirectSpellChecker} against the terms of the
+ * searched field itself, so no separate spelling index is kept. <br>
+ * Every query word is replaced by the closest more popular terms of the field, the words of the dictionary engine
+ * being preferred over the rest, e.g. over the bare stems and the common misspellings found in tweets.
+ */
+@Component
+@PropertySource("classpath:sparrow.properties")
+public class SpellCorrector {
+
+  private static final Logger logger = LoggerFactory.getLogger(SpellCorrector.class);
+
+  /// the terms of DictionaryEngine.IndexField.WORD
+  private static final String DICTIONARY_FIELD = "word";
+
+  private final AnalyzerProvider analyzerProvider;
+  private final SearcherManagerRegistry searcherRegistry;
+  private final DirectSpellChecker spellChecker = new DirectSpellChecker();
+
+  @Value("${search.spell.min.hits}")
+  private int minHits;
+  @Value("${search.spell.corrections}")
+  private int maxCorrections;
+
+  private record Correction(int startOffset, int endOffset, List<String> candidates) {
+  }
+
+  public SpellCorrector(AnalyzerProvider analyzerProvider, SearcherManagerRegistry searcherRegistry) {
+    this.analyzerProvider = analyzerProvider;
+    this.searcherRegistry = searcherRegistry;
+  }
+
+  /**
+   * Adds the corrections of the query to a first page with less than {@code search.spell.min.hits} hits; a page
+   * without any hit is searched again with the first correction. <br>
+   * Only the first page is corrected, the following ones are searched with the corrected query by the client.
+   */
+  public <T> SearchResults<T> correct(EngineType engineType, IndexSearcher searcher, String field, SearchQuery searchQuery,
+                                      SearchResults<T> results, Function<SearchQuery, SearchResults<T>> search) {
+    if (searchQuery.getCursor() != null || results.getHits().size() >= minHits) return results;
+    List<String> corrections = corrections(engineType, searcher, field, searchQuery.getQuery());
+    if (corrections.isEmpty()) return results;
+    if (!results.getHits().isEmpty()) {
+      return new SearchResults<>(results.getHits(), results.getCursor(), results.getFacets(), corrections, null);
+    }
+    String correctedQuery = corrections.getFirst();
+    logger.info("No {} hits for [{}], searching [{}] instead", engineType.getName(), searchQuery.getQuery(), correctedQuery);
+    SearchResults<T> corrected = search.apply(searchQuery.toBuilder().query(correctedQuery).build());
+    return new SearchResults<>(corrected.getHits(), corrected.getCursor(), corrected.getFacets(), corrections, correctedQuery);
+  }
+
+  /**
+   * Up to {@code search.spell.corrections} corrected queries, best first, with the words that were not misspelled
+   * left as they are; none when no word has a more popular neighbour in the field
+   */
+  public List<String> corrections(EngineType engineType, IndexSearcher searcher, String field, String query) {
+    if (query == null || query.isBlank()) return List.of();
+    List<Correction> corrections = new ArrayList<>();
+    IndexSearcher dictionary = acquireDictionary();
+    // the field holds the words as they are written too, so they are checked without stemming
+    Analyzer analyzer = analyzerProvider.getAnalyzer(engineType, LuceneMode.SEARCHING, false);
+    try (TokenStream tokenStream = analyzer.tokenStream(field, query)) {
+      CharTermAttribute termAttribute = tokenStream.addAttribute(CharTermAttribute.class);
+      OffsetAttribute offsetAttribute = tokenStream.addAttribute(OffsetAttribute.class);
+      tokenStream.reset();
+      while (tokenStream.incrementToken()) {
+        Term term = new Term(field, termAttribute.toString());
+        SuggestWord[] words = spellChecker.suggestSimilar(term, maxCorrections, searcher.getIndexReader(), SuggestMode.SUGGEST_MORE_POPULAR);
+        if (words.length > 0) {
+          corrections.add(new Correction(offsetAttribute.startOffset(), offsetAttribute.endOffset(), candidates(words, dictionary)));
+        }
+      }
+      tokenStream.end();
+    } catch (IOException ioe) {
+      logger.warn("Spell checking [{}] failed : {}", query, ioe.getMessage());
+      return List.of();
+    } finally {
+      if (dictionary != null) searcherRegistry.release(EngineType.DICTIONARY, dictionary);
+    }
+    if (corrections.isEmpty()) return List.of();
+    // the i-th correction takes the i-th candidate of every misspelled word, or its last one
+    Set<String> corrected = new LinkedHashSet<>();
+    for (int i = 0; i < maxCorrections; i++) {
+      StringBuilder correctedQuery = new StringBuilder();
+      int end = 0;
+      for (Correction correction : corrections) {
+        correctedQuery.append(query, end, correction.startOffset())
+          .append(correction.candidates().get(Math.min(i, correction.candidates().size() - 1)));
+        end = correction.endOffset();
+      }
+      corrected.add(correctedQuery.append(query, end, query.length()).toString());
+    }
+    return List.copyOf(corrected);
+  }
+
+  /**
+   * Candidates found in the dictionary first, each group in the spell checker's order of similarity and frequency
+   */
+  private List<String> candidates(SuggestWord[] words, IndexSearcher dictionary) throws IOException {
+    List<String> known = new ArrayList<>();
+    List<String> unknown = new ArrayList<>();
+    IndexReader reader = dictionary == null ? null : dictionary.getIndexReader();
+    for (SuggestWord word : words) {
+      boolean isWord = reader != null && reader.docFreq(new Term(DICTIONARY_FIELD, word.string)) > 0;
+      (isWord ? known : unknown).add(word.string);
+    }
+    known.addAll(unknown);
+    return known;
+  }
+
+  /// corrections are still made from the searched field alone when there is no dictionary index
+  private IndexSearcher acquireDictionary() {
+    try {
+      return searcherRegistry.acquire(EngineType.DICTIONARY);
+    } catch (IOException ioe) {
+      logger.warn("No dictionary to spell check with : {}", ioe.getMessage());
+      return null;
+    }
+  }
+
+}
@@ -0,0 +1,261 @@
+package com.github.sparrow.lucene;
+
+import com.github.sparrow.lucene.entity.Suggestion;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.core.KeywordTokenizer;
+import org.apache.lucene.codecs.CodecUtil;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.suggest.InputIterator;
+import org.apache.lucene.search.suggest.Lookup;
+import org.apache.lucene.search.suggest.analyzing.AnalyzingSuggester;
+import org.apache.lucene.store.ChecksumIndexInput;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.store.NIOFSDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps one FST based {@link AnalyzingSuggester} per engine, built from the {@link Searcher#suggestions(IndexSearcher)}
+ * of the engine, so a query prefix is completed from the suggester's FST instead of searching the index on every key
+ * stroke. <br>
+ * Suggesters are stored next to the indexes along with the reader versions they were built from, and read back onto
+ * the heap at startup, AnalyzingSuggester has no off-heap FST. <br>
+ * A suggester is rebuilt as a whole once the reader version of its engine changes, which for tweets reads and stems
+ * the whole terms dictionary again. Builds run one at a time on a background thread, lookups keep using the previous
+ * suggester until a build is done.
+ *
+ * @see <a href="https://blog.mikemccandless.com/2012/09/lucenes-new-analyzing-suggester.html">Lucene's new AnalyzingSuggester</a>
+ */
+@Component
+@PropertySource("classpath:sparrow.properties")
+public class SuggesterRegistry {
+
+  private static final Logger logger = LoggerFactory.getLogger(SuggesterRegistry.class);
+
+  private static final String CODEC = "sparrow-suggester";
+  private static final int VERSION = 0;
+  private static final String EXTENSION = ".fst";
+
+  private final Map<EngineType, Searcher<?>> engines;
+  private final SearcherManagerRegistry searcherRegistry;
+  private final Map<EngineType, BuiltSuggester> suggesters = new ConcurrentHashMap<>();
+  private final ScheduledExecutorService builder = Executors.newSingleThreadScheduledExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "suggester-builder");
+    thread.setDaemon(true);
+    return thread;
+  });
+  private Directory directory;
+
+  @Value("${index.path}")
+  private String indexPath;
+  @Value("${suggest.refresh.interval.ms}")
+  private long refreshIntervalMs;
+
+  /// versions are the reader versions by shard path, see {@link ShardedIndexSearcher#versions(EngineType, IndexSearcher)}
+  private record BuiltSuggester(Lookup lookup, Map<String, String> versions) {
+  }
+
+  public SuggesterRegistry(List<Searcher<?>> engines, SearcherManagerRegistry searcherRegistry) {
+    this.engines = engines.stream().collect(Collectors.toMap(Searcher::getEngineType, Function.identity()));
+    this.searcherRegistry = searcherRegistry;
+  }
+
+  @PostConstruct
+  public void loadSuggesters() throws IOException {
+    Path suggestPath = Path.of(System.getProperty("user.home") + indexPath, "suggest");
+    Files.createDirectories(suggestPath);
+    // read once, front to back, onto the heap
+    directory = new NIOFSDirectory(suggestPath);
+    for (EngineType engineType : engines.keySet()) {
+      try {
+        load(engineType);
+      } catch (IOException ioe) {
+        logger.warn("Could not load the {} suggester, it will be rebuilt : {}", engineType.getName(), ioe.getMessage());
+      }
+    }
+    builder.scheduleWithFixedDelay(this::refreshAll, refreshIntervalMs, refreshIntervalMs, TimeUnit.MILLISECONDS);
+  }
+
+  @PreDestroy
+  public void close() throws IOException {
+    builder.shutdownNow();
+    directory.close();
+  }
+
+  /**
+   * Completions of the prefix, most popular first; an engine whose suggester is not built yet has none
+   */
+  public List<Suggestion> suggest(EngineType engineType, String prefix, int n) {
+    BuiltSuggester suggester = suggesters.get(engineType);
+    if (suggester == null || prefix == null || prefix.isBlank()) return List.of();
+    try {
+      return suggester.lookup().lookup(prefix, false, n).stream()
+        .map(result -> new Suggestion(result.key.toString(), result.value))
+        .toList();
+    } catch (IOException ioe) {
+      throw new RuntimeException(ioe.getMessage());
+    }
+  }
+
+  /**
+   * Rebuilds the engine's suggester in the background, if its index has changed since the last build
+   */
+  public void maybeRebuild(EngineType engineType) {
+    builder.execute(() -> {
+      try {
+        rebuild(engineType);
+      } catch (Exception ex) {
+        logger.error("Failed to build the {} suggester : {}", engineType.getName(), ex.getMessage(), ex);
+      }
+    });
+  }
+
+  private void refreshAll() {
+    for (EngineType engineType : engines.keySet()) {
+      try {
+        rebuild(engineType);
+      } catch (Exception ex) {
+        logger.error("Failed to build the {} suggester : {}", engineType.getName(), ex.getMessage(), ex);
+      }
+    }
+  }
+
+  private void rebuild(EngineType engineType) throws IOException {
+    IndexSearcher searcher = searcherRegistry.acquire(engineType);
+    try {
+      Map<String, String> versions = new TreeMap<>();
+      ShardedIndexSearcher.versions(engineType, searcher).forEach((shard, version) -> versions.put(shard.path(), String.valueOf(version)));
+      BuiltSuggester current = suggesters.get(engineType);
+      if (current != null && current.versions().equals(versions)) return;
+      long start = System.nanoTime();
+      Map<String, Long> suggestions = engines.get(engineType).suggestions(searcher);
+      AnalyzingSuggester suggester = newSuggester(engineType);
+      suggester.build(new WeightedInputIterator(suggestions.entrySet().iterator()));
+      store(engineType, suggester, versions);
+      suggesters.put(engineType, new BuiltSuggester(suggester, versions));
+      logger.info("Built the {} suggester from {} suggestions in {} ms, using {} bytes", engineType.getName(),
+        suggester.getCount(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), suggester.ramBytesUsed());
+    } finally {
+      searcherRegistry.release(engineType, searcher);
+    }
+  }
+
+  /**
+   * Written to a temporary file first and then renamed, so a crash while storing never leaves a torn suggester behind
+   */
+  private void store(EngineType engineType, AnalyzingSuggester suggester, Map<String, String> versions) throws IOException {
+    String fileName = engineType.getName() + EXTENSION;
+    String tempFileName = engineType.getName() + ".tmp";
+    IOUtils.deleteFilesIgnoringExceptions(directory, tempFileName);
+    try (IndexOutput out = directory.createOutput(tempFileName, IOContext.DEFAULT)) {
+      CodecUtil.writeHeader(out, CODEC, VERSION);
+      out.writeMapOfStrings(versions);
+      // an empty suggester has no fst to store
+      boolean empty = suggester.getCount() == 0;
+      out.writeByte((byte) (empty ? 0 : 1));
+      if (!empty) suggester.store(out);
+      CodecUtil.writeFooter(out);
+    }
+    directory.sync(List.of(tempFileName));
+    IOUtils.deleteFilesIgnoringExceptions(directory, fileName);
+    directory.rename(tempFileName, fileName);
+    directory.syncMetaData();
+  }
+
+  private void load(EngineType engineType) throws IOException {
+    String fileName = engineType.getName() + EXTENSION;
+    if (!Set.of(directory.listAll()).contains(fileName)) return;
+    try (ChecksumIndexInput in = directory.openChecksumInput(fileName)) {
+      CodecUtil.checkHeader(in, CODEC, VERSION, VERSION);
+      Map<String, String> versions = in.readMapOfStrings();
+      AnalyzingSuggester suggester = newSuggester(engineType);
+      if (in.readByte() == 1) suggester.load(in);
+      CodecUtil.checkFooter(in);
+      suggesters.put(engineType, new BuiltSuggester(suggester, versions));
+      logger.info("Loaded the {} suggester of {} suggestions", engineType.getName(), suggester.getCount());
+    }
+  }
+
+  private AnalyzingSuggester newSuggester(EngineType engineType) {
+    return new AnalyzingSuggester(directory, engineType.getName(), new PrefixAnalyzer());
+  }
+
+  /// the whole suggestion is one lower cased token, so prefixes match regardless of case and the surface form is kept
+  private static class PrefixAnalyzer extends Analyzer {
+    @Override
+    protected TokenStreamComponents createComponents(String fieldName) {
+      final Tokenizer source = new KeywordTokenizer();
+      return new TokenStreamComponents(source, new LowerCaseFilter(source));
+    }
+  }
+
+  private static class WeightedInputIterator implements InputIterator {
+
+    private final Iterator<Map.Entry<String, Long>> suggestions;
+    private long weight;
+
+    private WeightedInputIterator(Iterator<Map.Entry<String, Long>> suggestions) {
+      this.suggestions = suggestions;
+    }
+
+    @Override
+    public BytesRef next() {
+      if (!suggestions.hasNext()) return null;
+      Map.Entry<String, Long> suggestion = suggestions.next();
+      weight = suggestion.getValue();
+      return new BytesRef(suggestion.getKey());
+    }
+
+    @Override
+    public long weight() {
+      return weight;
+    }
+
+    @Override
+    public BytesRef payload() {
+      return null;
+    }
+
+    @Override
+    public boolean hasPayloads() {
+      return false;
+    }
+
+    @Override
+    public Set<BytesRef> contexts() {
+      return null;
+    }
+
+    @Override
+    public boolean hasContexts() {
+      return false;
+    }
+  }
+
+}
@@ -0,0 +1,46 @@
+package com.github.sparrow.lucene;
+
+import com.github.sparrow.lucene.entity.Tweet;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Loads the full tweets of a page of hits by their ids, in one batch, from a store kept beside the index. <br>
+ * The index then only holds the pointers to the tweets, their ids in doc values, and stores no tweet at all.
+ */
+public interface TweetHydrator {
+
+  /**
+   * Where the hits are hydrated from, see {@code twitter.hydrate.source}
+   */
+  enum Source {
+    /// the payload stored in the index itself
+    INDEX,
+    /// the {@code tweet_data} table filled by the db normalizer
+    DB,
+    /// a key-value file written along with the index
+    FILE
+  }
+
+  /**
+   * @return the tweets found, by id
+   */
+  Map<Long, Tweet> hydrate(Collection<Long> tweetIds);
+
+  /**
+   * figure out if the store is missing the indexed tweets, so they are indexed and stored again
+   */
+  default boolean needsStoring() {
+    return false;
+  }
+
+  /**
+   * store all the indexed tweets, for the stores written along with the index
+   */
+  default void store(List<Tweet> tweets) throws IOException {
+  }
+
+}
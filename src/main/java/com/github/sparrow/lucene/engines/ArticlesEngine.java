@@ -3,58 +3,113 @@ package com.github.sparrow.lucene.engines;
 import com.github.sparrow.dto.ArticleSearchResponse;
 import com.github.sparrow.entity.CrawledPage;
 import com.github.sparrow.exception.IndexingException;
+import com.github.sparrow.lucene.AnalyzerProvider;
 import com.github.sparrow.lucene.EngineType;
 import com.github.sparrow.lucene.Indexer;
 import com.github.sparrow.lucene.LuceneContext;
+import com.github.sparrow.lucene.LuceneMode;
+import com.github.sparrow.lucene.QueryParsers;
 import com.github.sparrow.lucene.Searcher;
+import com.github.sparrow.lucene.entity.SearchCursor;
 import com.github.sparrow.lucene.entity.SearchHit;
 import com.github.sparrow.lucene.entity.SearchQuery;
+import com.github.sparrow.lucene.entity.SearchResults;
+import com.github.sparrow.repository.CrawledPageRepository;
 import com.github.sparrow.util.DateUtil;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
-import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
+import org.apache.lucene.document.FieldType;
 import org.apache.lucene.document.IntField;
 import org.apache.lucene.document.LongPoint;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.document.TextField;
 import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.FieldInfos;
+import org.apache.lucene.index.IndexOptions;
 import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.MultiTerms;
+import org.apache.lucene.index.StoredFields;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.index.Terms;
 import org.apache.lucene.index.TermsEnum;
 import org.apache.lucene.queryparser.classic.ParseException;
-import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TermInSetQuery;
+import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.search.TopDocs;
-import org.apache.lucene.search.highlight.Formatter;
-import org.apache.lucene.search.highlight.Fragmenter;
-import org.apache.lucene.search.highlight.Highlighter;
-import org.apache.lucene.search.highlight.InvalidTokenOffsetsException;
-import org.apache.lucene.search.highlight.QueryScorer;
-import org.apache.lucene.search.highlight.SimpleHTMLFormatter;
-import org.apache.lucene.search.highlight.SimpleSpanFragmenter;
+import org.apache.lucene.search.TotalHits;
+import org.apache.lucene.search.join.BitSetProducer;
+import org.apache.lucene.search.join.QueryBitSetProducer;
+import org.apache.lucene.search.join.ScoreMode;
+import org.apache.lucene.search.join.ToParentBlockJoinQuery;
+import org.apache.lucene.search.uhighlight.UnifiedHighlighter;
+import org.apache.lucene.search.uhighlight.WholeBreakIterator;
 import org.apache.lucene.util.BytesRef;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
-import java.io.StringReader;
+import java.text.BreakIterator;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
-public class ArticlesEngine implements Indexer<CrawledPage>, Searcher<SearchHit<ArticleSearchResponse>> {
+@PropertySource("classpath:sparrow.properties")
+public class ArticlesEngine implements Indexer<CrawledPage>, Searcher<ArticleSearchResponse> {
 
   private static final Logger logger = LoggerFactory.getLogger(ArticlesEngine.class);
 
   private final DateUtil dateUtil;
+  private final AnalyzerProvider analyzerProvider;
+  private final QueryParsers queryParsers;
+  private final CrawledPageRepository crawledPageRepository;
+
+  /// passage content is stored for the snippets, and its postings carry offsets so snippets never re-analyze it
+  private static final FieldType CONTENT_TYPE = contentType();
+  /// stored fields of a hit besides its snippet
+  private static final Set<String> HIT_FIELDS = Set.of(IndexField.URL.getName(), IndexField.TITLE.getName(), IndexField.CONTENT_HASH.getName());
+  /// passages are whole sentences, added up until they reach this many chars
+  private static final int PASSAGE_LENGTH = 300;
+  private static final String PAGE = "page";
+  private static final String PASSAGE = "passage";
+  /// crawled pages read at once while the index is rebuilt
+  private static final int REBUILD_BATCH_SIZE = 100;
+  /// the page of a block is its last document, after its passages
+  private static final BitSetProducer PAGES = new QueryBitSetProducer(new TermQuery(new Term(IndexField.DOC_TYPE.getName(), PAGE)));
+
+  @Value("${search.page.size.default}")
+  private Integer defaultPageSize;
+
+  private static FieldType contentType() {
+    FieldType contentType = new FieldType(TextField.TYPE_STORED);
+    contentType.setIndexOptions(IndexOptions.DOCS_AND_FREQS_AND_POSITIONS_AND_OFFSETS);
+    contentType.freeze();
+    return contentType;
+  }
 
   @Override
   public EngineType getEngineType() {
@@ -66,9 +121,12 @@ public class ArticlesEngine implements Indexer<CrawledPage>, Searcher<SearchHit<
     ID("id"),
     URL("url"),
     TITLE("title"),
+    /// text of a passage, pages are only searched through their passages
     CONTENT("content"),
     CRAWLED_AT("crawled-at"),
-    CONTENT_HASH("content-hash");
+    CONTENT_HASH("content-hash"),
+    /// page or passage
+    DOC_TYPE("doc-type");
     private final String name;
 
     IndexField(String name) {
@@ -76,69 +134,206 @@ public class ArticlesEngine implements Indexer<CrawledPage>, Searcher<SearchHit<
     }
   }
 
+  /**
+   * Articles are crawled by spiders one by one, an index written before the pages were indexed as blocks has no
+   * doc type, and one written before the content kept its offsets can not take new passages; both are indexed again
+   * from the crawled pages
+   */
+  @Override
+  public boolean needsIndexing(LuceneContext context) {
+    try (IndexReader reader = DirectoryReader.open(context.getDirectory())) {
+      if (reader.maxDoc() <= 0) return crawledPageRepository.count() > 0;
+      FieldInfos fieldInfos = FieldInfos.getMergedFieldInfos(reader);
+      if (fieldInfos.fieldInfo(IndexField.DOC_TYPE.getName()) == null) return true;
+      FieldInfo content = fieldInfos.fieldInfo(IndexField.CONTENT.getName());
+      return content != null && content.getIndexOptions() != CONTENT_TYPE.indexOptions();
+    } catch (IOException ioe) {
+      logger.warn(ioe.getMessage());
+    }
+    return true;
+  }
+
+  /**
+   * Rebuilds the whole index from the crawled pages kept in the database
+   */
   @Override
   public void index(LuceneContext context) throws IndexingException {
-    /// articles are crawled by spiders one by one >> no operation
+    try {
+      IndexWriter writer = context.getWriter();
+      writer.deleteAll();
+      int sum = 0;
+      Page<CrawledPage> pages;
+      int pageNumber = 0;
+      do {
+        pages = crawledPageRepository.findAll(PageRequest.of(pageNumber++, REBUILD_BATCH_SIZE, Sort.by("id")));
+        for (CrawledPage page : pages) {
+          writer.addDocuments(block(page));
+          sum++;
+        }
+      } while (pages.hasNext());
+      if (!context.isNrt()) writer.commit();
+      logger.info("Successfully Indexed {} articles", sum);
+    } catch (IOException ioe) {
+      logger.error("Error indexing Articles  : {}", ioe.getMessage());
+      throw new IndexingException("Error indexing Articles " + ioe.getMessage(), ioe.getCause());
+    }
   }
 
+  /**
+   * Indexes the page as a block: a child document per passage of its content, followed by the page itself. <br>
+   * Every document of the block carries the url, so a re-crawled page replaces its whole block.
+   */
   @Override
   public void indexDocument(LuceneContext context, CrawledPage article) throws IOException {
     logger.info("Indexing article: {}", article.getUrl());
+    context.getWriter().updateDocuments(new Term(IndexField.URL.getName(), article.getUrl()), block(article));
+    if (!context.isNrt()) {
+      // nrt searchers see the page without a commit, the shared writer is committed on a schedule
+      context.getWriter().commit();
+    }
+  }
+
+  private List<Document> block(CrawledPage article) {
+    List<Document> block = new ArrayList<>();
+    for (String passage : passages(article.getContent())) {
+      Document child = new Document();
+      child.add(new StringField(IndexField.URL.getName(), article.getUrl(), Field.Store.NO));
+      child.add(new StringField(IndexField.DOC_TYPE.getName(), PASSAGE, Field.Store.NO));
+      child.add(new Field(IndexField.CONTENT.getName(), passage, CONTENT_TYPE));
+      block.add(child);
+    }
     Document document = new Document();
     document.add(new IntField(IndexField.ID.getName(), article.getId(), Field.Store.YES));
     document.add(new StringField(IndexField.URL.getName(), article.getUrl(), Field.Store.YES));
     document.add(new StringField(IndexField.TITLE.getName(), article.getTitle(), Field.Store.YES));
-    document.add(new TextField(IndexField.CONTENT.getName(), article.getContent(), Field.Store.YES)); // store for highlighting
+    document.add(new StringField(IndexField.DOC_TYPE.getName(), PAGE, Field.Store.NO));
     document.add(new LongPoint(IndexField.CRAWLED_AT.getName(), dateUtil.convertToLong(article.getLastCrawledAt())));
     document.add(new StringField(IndexField.CONTENT_HASH.getName(), article.getContentHash(), Field.Store.YES));
-    context.getWriter().updateDocument(new Term(IndexField.URL.getName(), article.getUrl()), document);
-    context.getWriter().commit();
+    block.add(document);
+    return block;
+  }
+
+  /// consecutive sentences of about PASSAGE_LENGTH chars, a longer sentence is a passage of its own
+  private static List<String> passages(String content) {
+    List<String> passages = new ArrayList<>();
+    if (content == null || content.isBlank()) return passages;
+    BreakIterator sentences = BreakIterator.getSentenceInstance(Locale.ROOT);
+    sentences.setText(content);
+    int start = sentences.first();
+    for (int end = sentences.next(); end != BreakIterator.DONE; end = sentences.next()) {
+      if (end - start >= PASSAGE_LENGTH) {
+        passages.add(content.substring(start, end).strip());
+        start = end;
+      }
+    }
+    if (start < content.length() && !content.substring(start).isBlank()) {
+      passages.add(content.substring(start).strip());
+    }
+    return passages;
   }
 
   @Override
-  public List<SearchHit<ArticleSearchResponse>> search(LuceneContext context, SearchQuery searchQuery) {
-    try (IndexReader reader = DirectoryReader.open(context.getDirectory())) {
-      IndexSearcher searcher = new IndexSearcher(reader);
-      QueryParser queryParser = new QueryParser(IndexField.CONTENT.getName(), context.getAnalyzer());
-      Query query = queryParser.parse(searchQuery.getQuery());
-      final Integer n = searchQuery.getTopN();
-      TopDocs topDocs = searcher.search(query, n == null ? Integer.MAX_VALUE : n);
-      // todo: consider using CollectorManager instead of top n hits
-
-      Formatter formatter = new SimpleHTMLFormatter();
-      QueryScorer scorer = new QueryScorer(query);
-      Highlighter highlighter = new Highlighter(formatter, scorer);
-      Fragmenter fragmenter = new SimpleSpanFragmenter(scorer, 150);
-      highlighter.setTextFragmenter(fragmenter);
+  public SearchResults<ArticleSearchResponse> search(IndexSearcher searcher, SearchQuery searchQuery) {
+    try {
+      Query query = queryParsers.parse(EngineType.ARTICLES, IndexField.CONTENT.getName(), searchQuery.isStemming(), searchQuery.getQuery());
+      Analyzer analyzer = analyzerProvider.getAnalyzer(EngineType.ARTICLES, LuceneMode.SEARCHING, searchQuery.isStemming());
+      final int n = searchQuery.getTopN() == null ? defaultPageSize : searchQuery.getTopN();
+      if (n <= 0) return new SearchResults<>(List.of(), null);
+      SearchCursor after = SearchCursor.decode(searchQuery.getCursor());
+      // only passages are joined to their pages, a query on the page fields such as url:... or *:* must not match them
+      Query passageQuery = new BooleanQuery.Builder()
+        .add(query, BooleanClause.Occur.MUST)
+        .add(new TermQuery(new Term(IndexField.DOC_TYPE.getName(), PASSAGE)), BooleanClause.Occur.FILTER)
+        .build();
+      // pages score as their best passage, so a long page is not diluted by its length
+      Query pageQuery = new ToParentBlockJoinQuery(passageQuery, PAGES, ScoreMode.Max);
+      TopDocs topDocs = searcher.searchAfter(after == null ? null : after.toScoreDoc(), pageQuery, n);
+
+      Document[] docs = new Document[topDocs.scoreDocs.length];
+      StoredFields storedFields = searcher.storedFields();
+      for (int i = 0; i < topDocs.scoreDocs.length; i++) {
+        docs[i] = storedFields.document(topDocs.scoreDocs[i].doc, HIT_FIELDS);
+      }
+      String[] snippets = highlight(searcher, analyzer, query, bestPassages(searcher, passageQuery, topDocs.scoreDocs, docs));
 
       List<SearchHit<ArticleSearchResponse>> searchResponses = new ArrayList<>();
-      for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
-        Document doc = reader.storedFields().document(scoreDoc.doc);
-        String content = doc.get(IndexField.CONTENT.getName());
-        TokenStream tokenStream = context.getAnalyzer().tokenStream(IndexField.CONTENT.getName(), new StringReader(content));
-        String highlighted = highlighter.getBestFragment(tokenStream, content);
-        // todo: highlight from a full sentence instead of just 150 chars?
-        if (highlighted == null) highlighted = content.length() > 150 ? content.substring(0, 150) + "..." : content;
+      for (int i = 0; i < topDocs.scoreDocs.length; i++) {
+        ScoreDoc scoreDoc = topDocs.scoreDocs[i];
         ArticleSearchResponse searched = ArticleSearchResponse
           .builder()
-          .url(doc.get(IndexField.URL.getName()))
-          .title(doc.get(IndexField.TITLE.getName()))
-          .content(highlighted)
-          .contentHash(doc.get(IndexField.CONTENT_HASH.getName()))
+          .url(docs[i].get(IndexField.URL.getName()))
+          .title(docs[i].get(IndexField.TITLE.getName()))
+          .content(snippets[i])
+          .contentHash(docs[i].get(IndexField.CONTENT_HASH.getName()))
           .build();
         searchResponses.add(new SearchHit<>(searched, scoreDoc.score, scoreDoc.doc));
       }
       logger.info("Searched [{}] pages for query [{}]", searchResponses.size(), query);
-      return searchResponses;
-    } catch (IOException | ParseException | InvalidTokenOffsetsException e) {
+      return new SearchResults<>(searchResponses, SearchCursor.next(searcher, topDocs.scoreDocs, n));
+    } catch (IOException | ParseException e) {
       logger.error("Search failed : {}", e.getMessage());
-      return List.of();
+      return new SearchResults<>(List.of(), null);
+    }
+  }
+
+  /**
+   * The best passage of every page is its snippet. The passages of all the pages are found in one search, filtered
+   * to the urls of the pages, which every passage of a block carries.
+   */
+  private static ScoreDoc[] bestPassages(IndexSearcher searcher, Query passageQuery, ScoreDoc[] pages, Document[] docs) throws IOException {
+    ScoreDoc[] passages = new ScoreDoc[pages.length];
+    if (pages.length == 0) return passages;
+    List<BytesRef> urls = Arrays.stream(docs).map(doc -> new BytesRef(doc.get(IndexField.URL.getName()))).toList();
+    Query ofPages = new BooleanQuery.Builder()
+      .add(passageQuery, BooleanClause.Occur.MUST)
+      .add(new TermInSetQuery(IndexField.URL.getName(), urls), BooleanClause.Occur.FILTER)
+      .build();
+    Set<Integer> pageDocs = Arrays.stream(pages).map(page -> page.doc).collect(Collectors.toSet());
+    Map<Integer, ScoreDoc> best = searcher.search(ofPages, new BestPassageCollectorManager(PAGES, pageDocs));
+    for (int i = 0; i < pages.length; i++) {
+      passages[i] = best.get(pages[i].doc);
     }
+    return passages;
   }
 
-  public List<String> getIndexedTokens(LuceneContext context, IndexField indexField) {
+  /**
+   * The whole passage is the snippet, with its matches marked from the offsets in the postings
+   */
+  private static String[] highlight(IndexSearcher searcher, Analyzer analyzer, Query query, ScoreDoc[] passages) throws IOException {
+    ScoreDoc[] found = Arrays.stream(passages).filter(Objects::nonNull).toArray(ScoreDoc[]::new);
+    UnifiedHighlighter highlighter = UnifiedHighlighter.builder(searcher, analyzer)
+      .withBreakIterator(WholeBreakIterator::new)
+      .withMaxLength(Integer.MAX_VALUE - 1)
+      .build();
+    String[] highlighted = highlighter.highlight(IndexField.CONTENT.getName(), query,
+      new TopDocs(new TotalHits(found.length, TotalHits.Relation.EQUAL_TO), found), 1);
+    String[] snippets = new String[passages.length];
+    for (int i = 0, j = 0; i < passages.length; i++) {
+      snippets[i] = passages[i] == null ? "" : highlighted[j++];
+    }
+    return snippets;
+  }
+
+  /**
+   * Titles of the crawled pages, weighted by the number of pages sharing a title
+   */
+  @Override
+  public Map<String, Long> suggestions(IndexSearcher searcher) throws IOException {
+    Map<String, Long> suggestions = new HashMap<>();
+    Terms terms = MultiTerms.getTerms(searcher.getIndexReader(), IndexField.TITLE.getName());
+    if (terms == null) return suggestions;
+    TermsEnum termsEnum = terms.iterator();
+    BytesRef title;
+    while ((title = termsEnum.next()) != null) {
+      if (title.length > 0) suggestions.put(title.utf8ToString(), (long) termsEnum.docFreq());
+    }
+    return suggestions;
+  }
+
+  public List<String> getIndexedTokens(IndexSearcher searcher, IndexField indexField) {
     List<String> tokens = new ArrayList<>();
-    try (IndexReader reader = DirectoryReader.open(context.getDirectory())) {
+    try {
+      IndexReader reader = searcher.getIndexReader();
       for (LeafReaderContext leafContext : reader.leaves()) {
         Terms terms = leafContext.reader().terms(indexField.getName());
         if (terms == null) continue;
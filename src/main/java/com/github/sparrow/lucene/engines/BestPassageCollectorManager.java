@@ -0,0 +1,98 @@
+package com.github.sparrow.lucene.engines;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.CollectorManager;
+import org.apache.lucene.search.Scorable;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.SimpleCollector;
+import org.apache.lucene.search.join.BitSetProducer;
+import org.apache.lucene.util.BitSet;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps the best scoring passage of each of the given pages, in a single pass over the matching passages. <br>
+ * A passage belongs to the page that closes its block, the next page document after it. On a tie the earlier
+ * passage wins, as it does in a top hits search.
+ */
+final class BestPassageCollectorManager implements CollectorManager<BestPassageCollectorManager.BestPassageCollector, Map<Integer, ScoreDoc>> {
+
+  private final BitSetProducer pages;
+  private final Set<Integer> pageDocs;
+
+  BestPassageCollectorManager(BitSetProducer pages, Set<Integer> pageDocs) {
+    this.pages = pages;
+    this.pageDocs = pageDocs;
+  }
+
+  @Override
+  public BestPassageCollector newCollector() {
+    return new BestPassageCollector(pages, pageDocs);
+  }
+
+  /**
+   * @return the best passage by the doc of its page
+   */
+  @Override
+  public Map<Integer, ScoreDoc> reduce(Collection<BestPassageCollector> collectors) {
+    Map<Integer, ScoreDoc> best = new HashMap<>();
+    for (BestPassageCollector collector : collectors) {
+      collector.best.forEach((page, passage) -> best.merge(page, passage, BestPassageCollectorManager::better));
+    }
+    return best;
+  }
+
+  private static ScoreDoc better(ScoreDoc a, ScoreDoc b) {
+    if (a.score != b.score) return a.score > b.score ? a : b;
+    return a.doc < b.doc ? a : b;
+  }
+
+  static final class BestPassageCollector extends SimpleCollector {
+    private final BitSetProducer pages;
+    private final Set<Integer> pageDocs;
+    private final Map<Integer, ScoreDoc> best = new HashMap<>();
+    private BitSet leafPages;
+    private int docBase;
+    private Scorable scorer;
+
+    private BestPassageCollector(BitSetProducer pages, Set<Integer> pageDocs) {
+      this.pages = pages;
+      this.pageDocs = pageDocs;
+    }
+
+    @Override
+    protected void doSetNextReader(LeafReaderContext context) throws IOException {
+      this.leafPages = pages.getBitSet(context);
+      this.docBase = context.docBase;
+    }
+
+    @Override
+    public void setScorer(Scorable scorer) {
+      this.scorer = scorer;
+    }
+
+    @Override
+    public void collect(int docId) throws IOException {
+      if (leafPages == null) return;
+      int page = docBase + leafPages.nextSetBit(docId);
+      if (!pageDocs.contains(page)) return;
+      float score = scorer.score();
+      ScoreDoc current = best.get(page);
+      // docs arrive in increasing docId order, so an equal score keeps the earlier passage
+      if (current == null || score > current.score) {
+        best.put(page, new ScoreDoc(docBase + docId, score));
+      }
+    }
+
+    @Override
+    public ScoreMode scoreMode() {
+      return ScoreMode.COMPLETE;
+    }
+  }
+
+}
@@ -4,10 +4,12 @@ import com.github.sparrow.exception.IndexingException;
 import com.github.sparrow.lucene.LuceneContext;
 import com.github.sparrow.lucene.EngineType;
 import com.github.sparrow.lucene.Indexer;
+import com.github.sparrow.lucene.QueryParsers;
 import com.github.sparrow.lucene.Searcher;
 import com.github.sparrow.lucene.entity.DictionaryEntry;
 import com.github.sparrow.lucene.entity.SearchHit;
 import com.github.sparrow.lucene.entity.SearchQuery;
+import com.github.sparrow.lucene.entity.SearchResults;
 import lombok.Getter;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
@@ -16,12 +18,22 @@ import org.apache.lucene.document.TextField;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.MultiTerms;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
 import org.apache.lucene.queryparser.classic.ParseException;
-import org.apache.lucene.queryparser.classic.QueryParser;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.IntsRefBuilder;
+import org.apache.lucene.util.StringHelper;
+import org.apache.lucene.util.fst.BytesRefFSTEnum;
+import org.apache.lucene.util.fst.FST;
+import org.apache.lucene.util.fst.FSTCompiler;
+import org.apache.lucene.util.fst.PositiveIntOutputs;
+import org.apache.lucene.util.fst.Util;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -34,26 +46,50 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
+/**
+ * The word dictionary is small, so it is indexed from its dataset on every start into a heap resident index, see
+ * {@code index.directory.ram.engines}, along with an FST from every word to its entries. <br>
+ * Words are looked up in the FST alone, meanings are searched in the index.
+ */
 @Service
 @PropertySource("classpath:sparrow.properties")
-public class DictionaryEngine implements Indexer<DictionaryEntry>, Searcher<SearchHit<DictionaryEntry>> {
+public class DictionaryEngine implements Indexer<DictionaryEntry>, Searcher<DictionaryEntry> {
 
   private static final Logger logger = LoggerFactory.getLogger(DictionaryEngine.class);
 
+  private final QueryParsers queryParsers;
+  private volatile Words words;
+
   @Value("${word.dictionary.txt}")
   private String wordDictionaryTxt;
   @Value("${dataset.path}")
   protected String datasetDirectory;
 
+  /// entries sorted by their lower cased word, the fst maps a lower cased word to the position of its first entry
+  private record Words(FST<Long> fst, List<DictionaryEntry> entries) {
+  }
+
+  public DictionaryEngine(QueryParsers queryParsers) {
+    this.queryParsers = queryParsers;
+  }
+
   @Override
   public EngineType getEngineType() {
     return EngineType.DICTIONARY;
   }
 
+  /**
+   * The word fst is only built while indexing, so the dictionary is indexed again on every start
+   */
   @Override
   public boolean needsIndexing(LuceneContext context) {
+    if (words == null) return true;
     try (IndexReader reader = DirectoryReader.open(context.getDirectory())) {
       return reader.maxDoc() <= 0;
     } catch (IOException ioe) {
@@ -84,9 +120,9 @@ public class DictionaryEngine implements Indexer<DictionaryEntry>, Searcher<Sear
         return;
       }
       int count = 0;
-      try (IndexWriter writer = context.getWriter();
-           BufferedReader reader = Files.newBufferedReader(dataPath)
-      ) {
+      List<DictionaryEntry> entries = new ArrayList<>();
+      IndexWriter writer = context.getWriter(); // closed along with the context
+      try (BufferedReader reader = Files.newBufferedReader(dataPath)) {
         logger.info("Indexing file {}, using writer {}", dataPath, writer);
         writer.deleteAll(); //delete previously indexed data
         String line;
@@ -105,9 +141,11 @@ public class DictionaryEngine implements Indexer<DictionaryEntry>, Searcher<Sear
             .source(row[3])
             .build();
           indexDocument(context, dictionaryEntry);
+          entries.add(dictionaryEntry);
         }
         writer.commit();
       }
+      words = words(entries);
       logger.info("Successfully Indexed {} words", count);
     } catch (IOException ioe) {
       logger.error(ioe.getMessage());
@@ -126,18 +164,20 @@ public class DictionaryEngine implements Indexer<DictionaryEntry>, Searcher<Sear
   }
 
   @Override
-  public List<SearchHit<DictionaryEntry>> search(LuceneContext context, SearchQuery searchQuery) {
-    try (IndexReader reader = DirectoryReader.open(context.getDirectory())) {
+  public SearchResults<DictionaryEntry> search(IndexSearcher searcher, SearchQuery searchQuery) {
+    try {
       String ques = searchQuery.getQuery();
-      IndexSearcher searcher = new IndexSearcher(reader);
-      QueryParser parser = new QueryParser(IndexField.MEANING.getName(), context.getAnalyzer());
-      Query query = parser.parse(ques);
+      if (ques == null) return new SearchResults<>(List.of(), null);
+      // the question keeps the query syntax: phrases, AND / OR / NOT, field prefixes and wildcards
+      Query query = queryParsers.parse(EngineType.DICTIONARY, IndexField.MEANING.getName(), true, ques);
       logger.info("Searching for the query : {}, using searcher : {}", query, searcher);
 
       TopDocs topDocs = searcher.search(query, 10);
       List<SearchHit<DictionaryEntry>> hits = new ArrayList<>();
       for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
-        logger.debug("Explanation : {}", searcher.explain(query, scoreDoc.doc));
+        if (logger.isDebugEnabled()) {
+          logger.debug("Explanation : {}", searcher.explain(query, scoreDoc.doc));
+        }
         Document document = searcher.storedFields().document(scoreDoc.doc);
         DictionaryEntry entry = DictionaryEntry.builder()
           .word(document.get(IndexField.WORD.getName()))
@@ -148,11 +188,91 @@ public class DictionaryEngine implements Indexer<DictionaryEntry>, Searcher<Sear
         hits.add(new SearchHit<>(entry, scoreDoc.score, scoreDoc.doc));
       }
       logger.info("Searched {} words for the question {}.", hits.size(), ques);
-      return hits;
+      return new SearchResults<>(hits, null);
     } catch (IOException | ParseException e) {
       logger.error("Search failed : {}", e.getMessage());
-      return List.of();
+      return new SearchResults<>(List.of(), null);
+    }
+  }
+
+  /**
+   * Every entry of the word, regardless of case; none until the dictionary is indexed
+   */
+  public List<DictionaryEntry> lookup(String word) {
+    Words words = this.words;
+    if (words == null || word == null) return List.of();
+    try {
+      String key = key(word);
+      Long first = Util.get(words.fst(), new BytesRef(key));
+      if (first == null) return List.of();
+      List<DictionaryEntry> entries = new ArrayList<>();
+      for (int i = first.intValue(); i < words.entries().size() && key.equals(key(words.entries().get(i).word())); i++) {
+        entries.add(words.entries().get(i));
+      }
+      return entries;
+    } catch (IOException ioe) {
+      throw new RuntimeException(ioe.getMessage());
+    }
+  }
+
+  /**
+   * The first n words starting with the prefix, in lexicographic order
+   */
+  public List<String> lookupPrefix(String prefix, int n) {
+    Words words = this.words;
+    if (words == null || prefix == null || n <= 0) return List.of();
+    try {
+      BytesRef key = new BytesRef(key(prefix));
+      BytesRefFSTEnum<Long> fstEnum = new BytesRefFSTEnum<>(words.fst());
+      List<String> found = new ArrayList<>();
+      BytesRefFSTEnum.InputOutput<Long> word = fstEnum.seekCeil(key);
+      while (word != null && StringHelper.startsWith(word.input, key) && found.size() < n) {
+        found.add(words.entries().get(word.output.intValue()).word());
+        word = fstEnum.next();
+      }
+      return found;
+    } catch (IOException ioe) {
+      throw new RuntimeException(ioe.getMessage());
+    }
+  }
+
+  private static Words words(List<DictionaryEntry> entries) throws IOException {
+    if (entries.isEmpty()) return null;
+    List<DictionaryEntry> sorted = new ArrayList<>(entries);
+    // the fst takes its inputs in utf-8 byte order
+    sorted.sort(Comparator.comparing(entry -> new BytesRef(key(entry.word()))));
+    FSTCompiler<Long> compiler = new FSTCompiler.Builder<>(FST.INPUT_TYPE.BYTE1, PositiveIntOutputs.getSingleton()).build();
+    IntsRefBuilder scratch = new IntsRefBuilder();
+    String previous = null;
+    for (int i = 0; i < sorted.size(); i++) {
+      String key = key(sorted.get(i).word());
+      if (key.equals(previous)) continue;
+      compiler.add(Util.toIntsRef(new BytesRef(key), scratch), (long) i);
+      previous = key;
+    }
+    FST<Long> fst = FST.fromFSTReader(compiler.compile(), compiler.getFSTReader());
+    logger.info("Built the word fst of {} entries in {} bytes", sorted.size(), fst.ramBytesUsed());
+    return new Words(fst, List.copyOf(sorted));
+  }
+
+  private static String key(String word) {
+    return word.strip().toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * Every word of the dictionary, weighted by its number of entries
+   */
+  @Override
+  public Map<String, Long> suggestions(IndexSearcher searcher) throws IOException {
+    Map<String, Long> suggestions = new HashMap<>();
+    Terms terms = MultiTerms.getTerms(searcher.getIndexReader(), IndexField.WORD.getName());
+    if (terms == null) return suggestions;
+    TermsEnum termsEnum = terms.iterator();
+    BytesRef term;
+    while ((term = termsEnum.next()) != null) {
+      suggestions.put(term.utf8ToString(), (long) termsEnum.docFreq());
     }
+    return suggestions;
   }
 
 }
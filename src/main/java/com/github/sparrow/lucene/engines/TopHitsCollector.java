@@ -0,0 +1,145 @@
+package com.github.sparrow.lucene.engines;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.Scorable;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.SimpleCollector;
+import org.apache.lucene.util.ArrayUtil;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * Min-heap of the best hits kept in primitive arrays, the weakest hit sits at the root. <br>
+ * Once the heap is full its root score is published as the minimum competitive score,
+ * which lets block-max WAND skip over blocks of documents that can not make it into the top n.
+ */
+final class TopHitsCollector extends SimpleCollector {
+  private static final int INITIAL_CAPACITY = 128;
+  /// how often the bound shared by the other slices is checked
+  private static final int SHARED_MIN_SCORE_INTERVAL = 1024;
+
+  private final int topN;
+  private final ScoreDoc after;
+  private final LongAccumulator sharedMinScore;
+  private float minCompetitiveScore;
+  /// the heap, read by the manager once the slice is collected
+  int[] docs;
+  float[] scores;
+  int size;
+  long totalHits;
+  private int docBase;
+  private Scorable scorer;
+
+  TopHitsCollector(int topN, ScoreDoc after, LongAccumulator sharedMinScore) {
+    this.topN = topN;
+    this.after = after;
+    this.sharedMinScore = sharedMinScore;
+    this.docs = new int[Math.min(topN, INITIAL_CAPACITY)];
+    this.scores = new float[docs.length];
+  }
+
+  @Override
+  protected void doSetNextReader(LeafReaderContext context) {
+    this.docBase = context.docBase;
+  }
+
+  @Override
+  public void setScorer(Scorable scorer) throws IOException {
+    this.scorer = scorer;
+    this.minCompetitiveScore = 0f;
+    updateMinCompetitiveScore();
+  }
+
+  @Override
+  public void collect(int docId) throws IOException {
+    if (++totalHits % SHARED_MIN_SCORE_INTERVAL == 0) {
+      updateMinCompetitiveScore();
+    }
+    float score = scorer.score();
+    if (after != null && (score > after.score || (score == after.score && docBase + docId <= after.doc))) {
+      return; // already returned on an earlier page
+    }
+    if (size < topN) {
+      if (size == docs.length) {
+        int capacity = Math.min(topN, ArrayUtil.oversize(size + 1, Integer.BYTES));
+        docs = ArrayUtil.growExact(docs, capacity);
+        scores = ArrayUtil.growExact(scores, capacity);
+      }
+      docs[size] = docBase + docId;
+      scores[size] = score;
+      siftUp(size++);
+      if (size == topN) {
+        updateMinCompetitiveScore();
+      }
+    } else if (score > scores[0]) {
+      // docs arrive in increasing docId order, so an equal score never beats the root
+      docs[0] = docBase + docId;
+      scores[0] = score;
+      siftDown(0);
+      updateMinCompetitiveScore();
+    }
+  }
+
+  /**
+   * Raises the bar of the current scorer to the better of the local heap root and the bound shared by all slices.
+   * A shared score itself stays competitive, a tie may still win on a lower docId of this slice.
+   */
+  private void updateMinCompetitiveScore() throws IOException {
+    float minScore = 0f;
+    if (size == topN) {
+      minScore = Math.nextUp(scores[0]);
+      sharedMinScore.accumulate(Float.floatToIntBits(scores[0]));
+    }
+    long shared = sharedMinScore.get();
+    if (shared != Long.MIN_VALUE) {
+      minScore = Math.max(minScore, Float.intBitsToFloat((int) shared));
+    }
+    if (minScore > minCompetitiveScore) {
+      scorer.setMinCompetitiveScore(minScore);
+      minCompetitiveScore = minScore;
+    }
+  }
+
+  @Override
+  public ScoreMode scoreMode() {
+    return ScoreMode.TOP_SCORES;
+  }
+
+  /// weaker hit: lower score, or the later doc on a tie
+  private boolean lessThan(int i, int j) {
+    return scores[i] < scores[j] || (scores[i] == scores[j] && docs[i] > docs[j]);
+  }
+
+  private void siftUp(int i) {
+    while (i > 0) {
+      int parent = (i - 1) >>> 1;
+      if (!lessThan(i, parent)) break;
+      swap(i, parent);
+      i = parent;
+    }
+  }
+
+  private void siftDown(int i) {
+    while (true) {
+      int smallest = i;
+      int left = 2 * i + 1;
+      int right = left + 1;
+      if (left < size && lessThan(left, smallest)) smallest = left;
+      if (right < size && lessThan(right, smallest)) smallest = right;
+      if (smallest == i) return;
+      swap(i, smallest);
+      i = smallest;
+    }
+  }
+
+  private void swap(int i, int j) {
+    int doc = docs[i];
+    docs[i] = docs[j];
+    docs[j] = doc;
+    float score = scores[i];
+    scores[i] = scores[j];
+    scores[j] = score;
+  }
+}
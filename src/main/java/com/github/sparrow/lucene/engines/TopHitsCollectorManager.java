@@ -0,0 +1,53 @@
+package com.github.sparrow.lucene.engines;
+
+import org.apache.lucene.search.CollectorManager;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TotalHits;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * Collects the best {@code topN} (docId, score) pairs of each slice, and merges them into a single top n. <br>
+ * With an {@code after} hit only the hits ranked below it are collected, i.e. the next page. <br>
+ * Slices searched concurrently share the best full-heap root score, so each of them can skip
+ * whatever another slice has already outranked.
+ */
+final class TopHitsCollectorManager implements CollectorManager<TopHitsCollector, TopDocs> {
+  private final int topN;
+  private final ScoreDoc after;
+  /// float bits of the highest root score of a full heap, scores are non-negative so the bits order like floats
+  private final LongAccumulator sharedMinScore = new LongAccumulator(Long::max, Long.MIN_VALUE);
+
+  TopHitsCollectorManager(int topN, ScoreDoc after) {
+    this.topN = topN;
+    this.after = after;
+  }
+
+  @Override
+  public TopHitsCollector newCollector() {
+    return new TopHitsCollector(topN, after, sharedMinScore);
+  }
+
+  @Override
+  public TopDocs reduce(Collection<TopHitsCollector> collectors) {
+    long totalHits = 0;
+    boolean pruned = false;
+    List<ScoreDoc> scoreDocs = new ArrayList<>();
+    for (TopHitsCollector collector : collectors) {
+      totalHits += collector.totalHits;
+      pruned |= collector.size == topN;
+      for (int i = 0; i < collector.size; i++) {
+        scoreDocs.add(new ScoreDoc(collector.docs[i], collector.scores[i]));
+      }
+    }
+    scoreDocs.sort((d1, d2) -> d1.score != d2.score ? Float.compare(d2.score, d1.score) : Integer.compare(d1.doc, d2.doc));
+    ScoreDoc[] top = scoreDocs.subList(0, Math.min(topN, scoreDocs.size())).toArray(new ScoreDoc[0]);
+    // once a heap filled up, non-competitive docs may have been skipped and the count is only a lower bound
+    TotalHits.Relation relation = pruned ? TotalHits.Relation.GREATER_THAN_OR_EQUAL_TO : TotalHits.Relation.EQUAL_TO;
+    return new TopDocs(new TotalHits(totalHits, relation), top);
+  }
+}
@@ -0,0 +1,151 @@
+package com.github.sparrow.lucene.engines;
+
+import com.github.sparrow.lucene.entity.FacetCount;
+import com.github.sparrow.util.DateUtil;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SortedNumericDocValues;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.search.CollectorManager;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.SimpleCollector;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Counts the facets of all the matching tweets in the same pass that collects the top hits, from doc values only: <br>
+ * the top usernames, a monthly date histogram, and likes bucketed by powers of ten. <br>
+ * Usernames are counted by segment ordinal and only resolved to strings once per segment.
+ */
+final class TweetFacetsCollectorManager implements CollectorManager<TweetFacetsCollectorManager.TweetFacetsCollector, Map<String, List<FacetCount>>> {
+
+  static final String USERNAMES = "usernames";
+  static final String DATES = "dates";
+  static final String LIKES = "likes";
+
+  /// 0, 1-9, 10-99, ... 100000-999999, 1000000+
+  private static final int LIKES_BUCKETS = 8;
+
+  private final DateUtil dateUtil;
+  private final int topUsernames;
+
+  TweetFacetsCollectorManager(DateUtil dateUtil, int topUsernames) {
+    this.dateUtil = dateUtil;
+    this.topUsernames = topUsernames;
+  }
+
+  @Override
+  public TweetFacetsCollector newCollector() {
+    return new TweetFacetsCollector(dateUtil);
+  }
+
+  @Override
+  public Map<String, List<FacetCount>> reduce(Collection<TweetFacetsCollector> collectors) {
+    Map<String, Long> usernames = new HashMap<>();
+    Map<String, Long> dates = new TreeMap<>();
+    long[] likes = new long[LIKES_BUCKETS];
+    for (TweetFacetsCollector collector : collectors) {
+      collector.usernames.forEach((username, count) -> usernames.merge(username, count, Long::sum));
+      collector.dates.forEach((month, count) -> dates.merge(month, count, Long::sum));
+      for (int i = 0; i < LIKES_BUCKETS; i++) likes[i] += collector.likes[i];
+    }
+    Map<String, List<FacetCount>> facets = new LinkedHashMap<>();
+    facets.put(USERNAMES, usernames.entrySet().stream()
+      .sorted(Map.Entry.<String, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+      .limit(topUsernames)
+      .map(username -> new FacetCount(username.getKey(), username.getValue()))
+      .toList());
+    facets.put(DATES, dates.entrySet().stream().map(month -> new FacetCount(month.getKey(), month.getValue())).toList());
+    List<FacetCount> likesFacet = new ArrayList<>();
+    for (int i = 0; i < LIKES_BUCKETS; i++) {
+      if (likes[i] > 0) likesFacet.add(new FacetCount(likesBucket(i), likes[i]));
+    }
+    facets.put(LIKES, likesFacet);
+    return facets;
+  }
+
+  private static String likesBucket(int bucket) {
+    if (bucket == 0) return "0";
+    long from = (long) Math.pow(10, bucket - 1);
+    return bucket == LIKES_BUCKETS - 1 ? from + "+" : from + "-" + (from * 10 - 1);
+  }
+
+  static final class TweetFacetsCollector extends SimpleCollector {
+    private final DateUtil dateUtil;
+    private final Map<String, Long> usernames = new HashMap<>();
+    private final Map<String, Long> dates = new HashMap<>();
+    private final long[] likes = new long[LIKES_BUCKETS];
+    /// months seen so far by their first milli, so a date is bucketed without converting it into the time zone
+    private final TreeMap<Long, Month> months = new TreeMap<>();
+
+    private SortedSetDocValues usernameValues;
+    private SortedNumericDocValues dateValues;
+    private SortedNumericDocValues likesValues;
+    private long[] usernameCounts;
+
+    private record Month(long end, String label) {
+    }
+
+    private TweetFacetsCollector(DateUtil dateUtil) {
+      this.dateUtil = dateUtil;
+    }
+
+    @Override
+    protected void doSetNextReader(LeafReaderContext context) throws IOException {
+      usernameValues = DocValues.getSortedSet(context.reader(), TweetsEngine.IndexField.USERNAME.getName());
+      dateValues = DocValues.getSortedNumeric(context.reader(), TweetsEngine.IndexField.DATE.getName());
+      likesValues = DocValues.getSortedNumeric(context.reader(), TweetsEngine.IndexField.LIKES.getName());
+      usernameCounts = new long[Math.toIntExact(usernameValues.getValueCount())];
+    }
+
+    @Override
+    public void collect(int doc) throws IOException {
+      if (usernameValues.advanceExact(doc)) {
+        usernameCounts[(int) usernameValues.nextOrd()]++;
+      }
+      if (dateValues.advanceExact(doc)) {
+        Month month = monthOf(dateValues.nextValue());
+        dates.merge(month.label(), 1L, Long::sum);
+      }
+      if (likesValues.advanceExact(doc)) {
+        long count = likesValues.nextValue();
+        likes[count <= 0 ? 0 : Math.min(LIKES_BUCKETS - 1, 1 + (int) Math.log10(count))]++;
+      }
+    }
+
+    @Override
+    public void finish() throws IOException {
+      for (int ord = 0; ord < usernameCounts.length; ord++) {
+        if (usernameCounts[ord] > 0) {
+          usernames.merge(usernameValues.lookupOrd(ord).utf8ToString(), usernameCounts[ord], Long::sum);
+        }
+      }
+    }
+
+    private Month monthOf(long date) {
+      Map.Entry<Long, Month> floor = months.floorEntry(date);
+      if (floor != null && date < floor.getValue().end()) return floor.getValue();
+      LocalDateTime dateTime = dateUtil.convertToLocalDateTime(date);
+      YearMonth yearMonth = dateTime == null ? YearMonth.of(1970, 1) : YearMonth.from(dateTime);
+      long start = dateUtil.convertToLong(yearMonth.atDay(1).atStartOfDay());
+      Month month = new Month(dateUtil.convertToLong(yearMonth.plusMonths(1).atDay(1).atStartOfDay()), yearMonth.toString());
+      months.put(start, month);
+      return month;
+    }
+
+    @Override
+    public ScoreMode scoreMode() {
+      return ScoreMode.COMPLETE_NO_SCORES;
+    }
+  }
+
+}
@@ -0,0 +1,149 @@
+package com.github.sparrow.lucene.engines;
+
+import com.github.sparrow.lucene.engines.TweetsEngine.IndexField;
+import com.github.sparrow.lucene.entity.Tweet;
+import com.github.sparrow.util.DateUtil;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.StoredFieldDataInput;
+import org.apache.lucene.index.StoredFieldVisitor;
+import org.apache.lucene.store.ByteBuffersDataOutput;
+import org.apache.lucene.store.DataInput;
+import org.apache.lucene.util.BytesRef;
+
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * The only stored field of a tweet, a compact binary payload instead of one stored field per attribute: <br>
+ * a vint of the flags of the present attributes, the tweet id as a vlong, the date as a zlong, views, likes and
+ * retweets as vints, then username, tweet, full name and url as vint length-prefixed UTF-8. <br>
+ * Numbers come first so the strings that are not asked for are skipped without being decoded. <br>
+ * Also the record format of the side stores of {@link com.github.sparrow.lucene.TweetHydrator}.
+ */
+public final class TweetPayload {
+
+  public static final Set<IndexField> ALL_FIELDS = EnumSet.of(IndexField.TWEET_ID, IndexField.USERNAME, IndexField.FULL_NAME,
+    IndexField.TWEET, IndexField.URL, IndexField.VIEWS, IndexField.LIKES, IndexField.RETWEETS, IndexField.DATE);
+
+  /// attributes in the order they are written, the flag of an attribute is 1 << its index
+  private static final IndexField[] LAYOUT = {IndexField.TWEET_ID, IndexField.DATE, IndexField.VIEWS, IndexField.LIKES,
+    IndexField.RETWEETS, IndexField.USERNAME, IndexField.TWEET, IndexField.FULL_NAME, IndexField.URL};
+
+  private TweetPayload() {
+  }
+
+  /**
+   * @param date the tweet date as converted by {@link DateUtil#convertToLong}, null without a date
+   */
+  public static BytesRef encode(Tweet tweet, Long date) {
+    Object[] values = {tweet.getTweetId(), date, tweet.getViews(), tweet.getLikes(), tweet.getRetweets(),
+      tweet.getUsername(), tweet.getTweet(), tweet.getFullName(), tweet.getUrl()};
+    int flags = 0;
+    for (int i = 0; i < values.length; i++) {
+      if (values[i] != null) flags |= 1 << i;
+    }
+    ByteBuffersDataOutput out = new ByteBuffersDataOutput();
+    try {
+      out.writeVInt(flags);
+      if (tweet.getTweetId() != null) out.writeVLong(tweet.getTweetId());
+      if (date != null) out.writeZLong(date);
+      if (tweet.getViews() != null) out.writeVInt(tweet.getViews());
+      if (tweet.getLikes() != null) out.writeVInt(tweet.getLikes());
+      if (tweet.getRetweets() != null) out.writeVInt(tweet.getRetweets());
+      if (tweet.getUsername() != null) out.writeString(tweet.getUsername());
+      if (tweet.getTweet() != null) out.writeString(tweet.getTweet());
+      if (tweet.getFullName() != null) out.writeString(tweet.getFullName());
+      if (tweet.getUrl() != null) out.writeString(tweet.getUrl());
+    } catch (IOException ioe) {
+      throw new RuntimeException(ioe.getMessage());
+    }
+    return new BytesRef(out.toArrayCopy());
+  }
+
+  /**
+   * Reads a payload from the input, building only the requested attributes; the input is left after the payload
+   */
+  public static Tweet decode(DataInput in, Set<IndexField> fields, DateUtil dateUtil) throws IOException {
+    Tweet.TweetBuilder builder = Tweet.builder();
+    int flags = in.readVInt();
+    for (int i = 0; i < LAYOUT.length; i++) {
+      if ((flags & (1 << i)) == 0) continue;
+      IndexField field = LAYOUT[i];
+      boolean wanted = fields.contains(field);
+      switch (field) {
+        case TWEET_ID -> {
+          long tweetId = in.readVLong();
+          if (wanted) builder.tweetId(tweetId);
+        }
+        case DATE -> {
+          long date = in.readZLong();
+          if (wanted) builder.tweetDate(dateUtil.convertToLocalDateTime(date));
+        }
+        case VIEWS, LIKES, RETWEETS -> {
+          int count = in.readVInt();
+          if (wanted) setCount(builder, field, count);
+        }
+        default -> {
+          if (wanted) {
+            setString(builder, field, in.readString());
+          } else {
+            in.skipBytes(in.readVInt());
+          }
+        }
+      }
+    }
+    return builder.build();
+  }
+
+  /**
+   * Decodes the requested attributes of the tweet straight from the stored fields input, without copying the payload
+   * and without visiting the indexed only fields
+   */
+  static final class Visitor extends StoredFieldVisitor {
+    private final Set<IndexField> fields;
+    private final DateUtil dateUtil;
+    private Tweet tweet;
+
+    Visitor(Set<IndexField> fields, DateUtil dateUtil) {
+      this.fields = fields;
+      this.dateUtil = dateUtil;
+    }
+
+    /// the decoded tweet, null when the document had no payload
+    Tweet getTweet() {
+      return tweet;
+    }
+
+    @Override
+    public Status needsField(FieldInfo fieldInfo) {
+      if (tweet != null) return Status.STOP;
+      return IndexField.PAYLOAD.getName().equals(fieldInfo.name) ? Status.YES : Status.NO;
+    }
+
+    @Override
+    public void binaryField(FieldInfo fieldInfo, StoredFieldDataInput value) throws IOException {
+      tweet = decode(value.getDataInput(), fields, dateUtil);
+    }
+  }
+
+  private static void setCount(Tweet.TweetBuilder builder, IndexField field, int count) {
+    switch (field) {
+      case VIEWS -> builder.views(count);
+      case LIKES -> builder.likes(count);
+      case RETWEETS -> builder.retweets(count);
+      default -> throw new IllegalStateException("Not a count attribute " + field);
+    }
+  }
+
+  private static void setString(Tweet.TweetBuilder builder, IndexField field, String value) {
+    switch (field) {
+      case USERNAME -> builder.username(value);
+      case TWEET -> builder.tweet(value);
+      case FULL_NAME -> builder.fullName(value);
+      case URL -> builder.url(value);
+      default -> throw new IllegalStateException("Not a text attribute " + field);
+    }
+  }
+
+}
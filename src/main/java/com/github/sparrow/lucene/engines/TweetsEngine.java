@@ -1,79 +1,163 @@
 package com.github.sparrow.lucene.engines;
 
 import com.github.sparrow.exception.IndexingException;
+import com.github.sparrow.lucene.IndexShard;
 import com.github.sparrow.lucene.LuceneContext;
 import com.github.sparrow.lucene.EngineType;
 import com.github.sparrow.lucene.Indexer;
+import com.github.sparrow.lucene.LuceneContextFactory;
+import com.github.sparrow.lucene.LuceneMode;
+import com.github.sparrow.lucene.QueryParsers;
+import com.github.sparrow.lucene.PartitionGranularity;
 import com.github.sparrow.lucene.Searcher;
+import com.github.sparrow.lucene.ShardedIndexSearcher;
+import com.github.sparrow.lucene.TweetHydrator;
 import com.github.sparrow.lucene.TweetNormalizer;
+import com.github.sparrow.lucene.entity.FacetCount;
+import com.github.sparrow.lucene.entity.SearchCursor;
 import com.github.sparrow.lucene.entity.SearchHit;
 import com.github.sparrow.lucene.entity.SearchQuery;
+import com.github.sparrow.lucene.entity.SearchResults;
 import com.github.sparrow.lucene.entity.Tweet;
 import com.github.sparrow.util.DateUtil;
-import com.github.sparrow.util.ParseUtil;
 import lombok.Getter;
 import org.apache.lucene.document.Document;
+import org.apache.lucene.document.FeatureField;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.document.IntField;
+import org.apache.lucene.document.KeywordField;
 import org.apache.lucene.document.LongField;
-import org.apache.lucene.document.LongPoint;
 import org.apache.lucene.document.StoredField;
-import org.apache.lucene.document.StringField;
 import org.apache.lucene.document.TextField;
 import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.FieldInfos;
 import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.MultiTerms;
+import org.apache.lucene.index.ReaderUtil;
+import org.apache.lucene.index.SortedNumericDocValues;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.index.StoredFields;
 import org.apache.lucene.index.Term;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
 import org.apache.lucene.queryparser.classic.ParseException;
-import org.apache.lucene.queryparser.classic.QueryParser;
 import org.apache.lucene.search.BooleanClause;
 import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
 import org.apache.lucene.search.CollectorManager;
+import org.apache.lucene.search.FieldDoc;
 import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.MultiCollectorManager;
 import org.apache.lucene.search.Query;
-import org.apache.lucene.search.Scorable;
-import org.apache.lucene.search.ScoreMode;
-import org.apache.lucene.search.SimpleCollector;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortedNumericSelector;
 import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopFieldCollectorManager;
+import org.apache.lucene.search.TopFieldDocs;
+import org.apache.lucene.search.TotalHits;
 import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.IOConsumer;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.StringHelper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.PropertySource;
 import org.springframework.stereotype.Service;
+import org.tartarus.snowball.ext.EnglishStemmer;
 
 import java.io.IOException;
-import java.time.format.DateTimeFormatter;
+import java.time.LocalDate;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
-import java.util.PriorityQueue;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 @Service
 @PropertySource("classpath:sparrow.properties")
-public class TweetsEngine implements Indexer<Tweet>, Searcher<SearchHit<Tweet>> {
+public class TweetsEngine implements Indexer<Tweet>, Searcher<Tweet> {
 
   private static final Logger logger = LoggerFactory.getLogger(TweetsEngine.class);
 
   private final TweetNormalizer tweetNormalizer;
+  /// null when the tweets are hydrated from the payloads stored in the index
+  private final TweetHydrator tweetHydrator;
   private final DateUtil dateUtil;
-  private final ParseUtil parseUtil;
+  private final QueryParsers queryParsers;
+  private final LuceneContextFactory contextFactory;
 
   public TweetsEngine(
     @Value("${normalizer.mode.db}") boolean useDbNormalizer,
     @Qualifier("tweetDbNormalizer") TweetNormalizer dbNormalizer,
     @Qualifier("tweetJsonNormalizer") TweetNormalizer jsonNormalizer,
-    DateUtil dateUtil, ParseUtil parseUtil
+    @Value("${twitter.hydrate.source}") TweetHydrator.Source hydrateSource,
+    @Qualifier("tweetDbHydrator") TweetHydrator dbHydrator,
+    @Qualifier("tweetFileHydrator") TweetHydrator fileHydrator,
+    DateUtil dateUtil, QueryParsers queryParsers, LuceneContextFactory contextFactory
   ) {
     this.tweetNormalizer = useDbNormalizer ? dbNormalizer : jsonNormalizer;
+    this.tweetHydrator = switch (hydrateSource) {
+      case INDEX -> null;
+      case DB -> dbHydrator;
+      case FILE -> fileHydrator;
+    };
     this.dateUtil = dateUtil;
-    this.parseUtil = parseUtil;
+    this.queryParsers = queryParsers;
+    this.contextFactory = contextFactory;
   }
 
+  /// hits hydrated at a time when streaming or exporting
+  private static final int HYDRATE_CHUNK_SIZE = 1024;
+  /// also the index sort of the tweets, so searches sorted by date terminate early, see LuceneContextFactory
+  public static final Sort NEWEST_FIRST = new Sort(LongField.newSortField(IndexField.DATE.getName(), true, SortedNumericSelector.Type.MAX));
+  private static final Sort MOST_LIKED = new Sort(IntField.newSortField(IndexField.LIKES.getName(), true, SortedNumericSelector.Type.MAX));
+  private static final Sort MOST_RETWEETED = new Sort(IntField.newSortField(IndexField.RETWEETS.getName(), true, SortedNumericSelector.Type.MAX));
+  private static final Sort MOST_VIEWED = new Sort(IntField.newSortField(IndexField.VIEWS.getName(), true, SortedNumericSelector.Type.MAX));
+  /// the attributes a client can ask for, see {@link SearchQuery#getFields()}, by their names in the json of a {@link Tweet}
+  private static final Map<String, IndexField> RESPONSE_FIELDS = Map.of("tweetId", IndexField.TWEET_ID,
+    "username", IndexField.USERNAME, "fullName", IndexField.FULL_NAME, "tweet", IndexField.TWEET, "url", IndexField.URL,
+    "views", IndexField.VIEWS, "likes", IndexField.LIKES, "retweets", IndexField.RETWEETS, "tweetDate", IndexField.DATE);
+  /// attributes with doc values, a page of only those is read without touching the stored fields
+  private static final Set<IndexField> DOC_VALUES_FIELDS = EnumSet.of(IndexField.TWEET_ID, IndexField.USERNAME,
+    IndexField.DATE, IndexField.VIEWS, IndexField.LIKES, IndexField.RETWEETS);
+
   @Value("${twitter.index.batch.commit.size}")
   private Integer maxBatchCommitSize;
+  @Value("${search.page.size.default}")
+  private Integer defaultPageSize;
+  /// default weights of the engagement signals mixed into relevance, see {@link SearchQuery#getLikesBoost()}
+  @Value("${twitter.search.boost.likes}")
+  private float likesBoost;
+  @Value("${twitter.search.boost.retweets}")
+  private float retweetsBoost;
+  @Value("${twitter.search.boost.views}")
+  private float viewsBoost;
+  /// number of top usernames in the facets
+  @Value("${twitter.search.facets.usernames}")
+  private int facetSize;
+  @Value("${twitter.suggest.min.df}")
+  private int suggestMinDocFreq;
+  /// route tweets to shards by username instead of tweet id, so the tweets of a user are searched on a single shard
+  @Value("${twitter.index.routing.username}")
+  private boolean routeByUsername;
 
   @Override
   public EngineType getEngineType() {
@@ -82,8 +166,15 @@ public class TweetsEngine implements Indexer<Tweet>, Searcher<SearchHit<Tweet>>
 
   @Override
   public boolean needsIndexing(LuceneContext context) {
+    if (tweetHydrator != null && tweetHydrator.needsStoring()) return true;
+    if (context.getShards() != null) {
+      return context.getShards().isEmpty() || context.getShards().values().stream().anyMatch(this::needsIndexing);
+    }
     try (IndexReader reader = DirectoryReader.open(context.getDirectory())) {
-      return reader.maxDoc() <= 0;
+      if (reader.maxDoc() <= 0) return true;
+      // an index written before the tweets were stored as a payload, or without them, is indexed again
+      boolean hasPayload = FieldInfos.getMergedFieldInfos(reader).fieldInfo(IndexField.PAYLOAD.getName()) != null;
+      return hasPayload != (tweetHydrator == null);
     } catch (IOException ioe) {
       logger.warn(ioe.getMessage());
     }
@@ -101,7 +192,10 @@ public class TweetsEngine implements Indexer<Tweet>, Searcher<SearchHit<Tweet>>
     LIKES("likes"),
     RETWEETS("retweets"),
     DATE("date"),
-    FORMATTED_DATE("formatted_date");
+    /// the only stored field, see {@link TweetPayload}
+    PAYLOAD("payload"),
+    /// static engagement signals, one feature per count named after its field
+    FEATURES("features");
     private final String name;
 
     IndexField(String name) {
@@ -115,9 +209,12 @@ public class TweetsEngine implements Indexer<Tweet>, Searcher<SearchHit<Tweet>>
       if (tweetNormalizer.needsNormalization()) {
         tweetNormalizer.normalizeCsv();
       }
-      context.getWriter().deleteAll();
-      int sum = indexTwitterDataset(context, tweetNormalizer.getNormalizedTweets());
-      context.getWriter().close();
+      for (IndexWriter writer : writers(context)) {
+        writer.deleteAll();
+      }
+      List<Tweet> tweets = tweetNormalizer.getNormalizedTweets();
+      int sum = indexTwitterDataset(context, tweets);
+      if (tweetHydrator != null) tweetHydrator.store(tweets);
       logger.info("Successfully Indexed {} tweets", sum);
     } catch (IOException ioe) {
       logger.error("Error indexing Tweets  : {}", ioe.getMessage());
@@ -125,17 +222,41 @@ public class TweetsEngine implements Indexer<Tweet>, Searcher<SearchHit<Tweet>>
     }
   }
 
+  /**
+   * Indexes the tweets partition by partition, oldest first, so only one partition is being written at a time.
+   * Every partition but the newest is force merged down to a single segment once indexed, it is read-only from then on.
+   */
   private int indexTwitterDataset(LuceneContext context, List<Tweet> tweets) {
     try {
-      int batch = 0;
-      for (Tweet tweet : tweets) {
-        indexDocument(context, tweet);
-        if (++batch >= maxBatchCommitSize) {
-          context.getWriter().commit();
-          batch = 0;
+      PartitionGranularity partitioning = contextFactory.getTweetPartitioning();
+      TreeMap<String, List<Tweet>> partitions = tweets.stream().collect(Collectors.groupingBy(
+        tweet -> Objects.requireNonNullElse(partitioning.partitionOf(tweet.getTweetDate()), ""), TreeMap::new, Collectors.toList()));
+      contextFactory.addPartitions(EngineType.TWEETS, partitions.keySet());
+      for (Map.Entry<String, List<Tweet>> partitionTweets : partitions.entrySet()) {
+        String partition = partitionTweets.getKey().isEmpty() ? null : partitionTweets.getKey();
+        if (context.getShards() != null) {
+          // every shard of the partition is searched, so each one gets a commit even when no tweet is routed to it
+          for (IndexShard shard : contextFactory.getShards(EngineType.TWEETS, partition)) {
+            shardContext(context, shard);
+          }
+        }
+        int batch = 0;
+        for (Tweet tweet : partitionTweets.getValue()) {
+          indexDocument(context, tweet);
+          if (++batch >= maxBatchCommitSize) {
+            commit(context, partition);
+            batch = 0;
+          }
+        }
+        commit(context, partition);
+        if (partition != null && !partition.equals(partitions.lastKey())) {
+          for (IndexWriter writer : writers(context, partition)) {
+            writer.forceMerge(1);
+            writer.commit();
+          }
+          logger.info("Force merged read-only tweets partition {}", partition);
         }
       }
-      context.getWriter().commit();
       return tweets.size();
     } catch (IOException ioe) {
       logger.error("Failed to index {} tweets", tweets.size(), ioe);
@@ -147,163 +268,548 @@ public class TweetsEngine implements Indexer<Tweet>, Searcher<SearchHit<Tweet>>
   public void indexDocument(LuceneContext context, Tweet tweet) throws IOException {
     logger.debug("Indexing tweet >> {} : {} ", tweet.getUsername(), tweet.getTweet());
     Document document = new Document();
-    document.add(new LongField(IndexField.TWEET_ID.getName(), tweet.getTweetId(), Field.Store.YES));
-    document.add(new StringField(IndexField.USERNAME.getName(), tweet.getUsername(), Field.Store.YES));
-    document.add(new TextField(IndexField.TWEET.getName(), tweet.getTweet(), Field.Store.YES));
-    if (tweet.getTweetDate() != null) {
-      long dateLong = dateUtil.convertToLong(tweet.getTweetDate());
-      DateTimeFormatter formatter = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
-      document.add(new LongPoint(IndexField.DATE.getName(), dateLong));
-      document.add(new StoredField(IndexField.DATE.getName(), dateLong));
-      document.add(new StringField(IndexField.FORMATTED_DATE.getName(), tweet.getTweetDate().format(formatter), Field.Store.YES));
+    Long date = tweet.getTweetDate() == null ? null : dateUtil.convertToLong(tweet.getTweetDate());
+    // every attribute is stored once in the payload, unless hydrated from a side store; the fields below are only indexed
+    if (tweetHydrator == null) {
+      document.add(new StoredField(IndexField.PAYLOAD.getName(), TweetPayload.encode(tweet, date)));
+    }
+    document.add(new LongField(IndexField.TWEET_ID.getName(), tweet.getTweetId(), Field.Store.NO));
+    // terms for the username filter, sorted set doc values for the username facet
+    document.add(new KeywordField(IndexField.USERNAME.getName(), tweet.getUsername(), Field.Store.NO));
+    document.add(new TextField(IndexField.TWEET.getName(), tweet.getTweet(), Field.Store.NO));
+    if (date != null) {
+      // points for range filters, doc values for sorting by date
+      document.add(new LongField(IndexField.DATE.getName(), date, Field.Store.NO));
     }
     if (tweet.getFullName() != null) {
-      document.add(new TextField(IndexField.FULL_NAME.getName(), tweet.getFullName(), Field.Store.YES));
+      document.add(new TextField(IndexField.FULL_NAME.getName(), tweet.getFullName(), Field.Store.NO));
     }
     if (tweet.getUrl() != null) {
-      document.add(new TextField(IndexField.URL.getName(), tweet.getUrl(), Field.Store.YES));
+      document.add(new TextField(IndexField.URL.getName(), tweet.getUrl(), Field.Store.NO));
     }
     if (tweet.getViews() != null) {
-      document.add(new IntField(IndexField.VIEWS.getName(), tweet.getViews(), Field.Store.YES));
+      document.add(new IntField(IndexField.VIEWS.getName(), tweet.getViews(), Field.Store.NO));
+      addFeature(document, IndexField.VIEWS, tweet.getViews());
     }
     if (tweet.getLikes() != null) {
-      document.add(new IntField(IndexField.LIKES.getName(), tweet.getLikes(), Field.Store.YES));
+      document.add(new IntField(IndexField.LIKES.getName(), tweet.getLikes(), Field.Store.NO));
+      addFeature(document, IndexField.LIKES, tweet.getLikes());
     }
     if (tweet.getRetweets() != null) {
-      document.add(new IntField(IndexField.RETWEETS.getName(), tweet.getRetweets(), Field.Store.YES));
+      document.add(new IntField(IndexField.RETWEETS.getName(), tweet.getRetweets(), Field.Store.NO));
+      addFeature(document, IndexField.RETWEETS, tweet.getRetweets());
+    }
+    shardContext(context, tweet).getWriter().addDocument(document);
+  }
+
+  /// features must be positive, a tweet without engagement simply has no feature and scores 0 on it
+  private static void addFeature(Document document, IndexField field, int count) {
+    if (count > 0) {
+      document.add(new FeatureField(IndexField.FEATURES.getName(), field.getName(), count));
+    }
+  }
+
+  private List<IndexWriter> writers(LuceneContext context) {
+    if (context.getShards() == null) return List.of(context.getWriter());
+    return context.getShards().values().stream().map(LuceneContext::getWriter).toList();
+  }
+
+  /// writers of a single time partition, or all of them when not partitioned
+  private List<IndexWriter> writers(LuceneContext context, String partition) {
+    if (context.getShards() == null) return List.of(context.getWriter());
+    return context.getShards().entrySet().stream()
+      .filter(shard -> Objects.equals(shard.getKey().partition(), partition))
+      .map(shard -> shard.getValue().getWriter())
+      .toList();
+  }
+
+  private void commit(LuceneContext context, String partition) throws IOException {
+    for (IndexWriter writer : writers(context, partition)) {
+      writer.commit();
     }
-    context.getWriter().addDocument(document);
+  }
+
+  /**
+   * Context of the shard the tweet is routed to: the time partition of its date, and the hash shard of its
+   * tweet id or of its username. The contexts of a new partition are all opened as it is indexed, and closed with the context.
+   */
+  private LuceneContext shardContext(LuceneContext context, Tweet tweet) throws IOException {
+    if (context.getShards() == null) return context;
+    String partition = contextFactory.getTweetPartitioning().partitionOf(tweet.getTweetDate());
+    List<IndexShard> shards = contextFactory.getShards(EngineType.TWEETS, partition);
+    String routingKey = routeByUsername ? tweet.getUsername() : Long.toString(tweet.getTweetId());
+    return shardContext(context, shards.get(shardOf(routingKey, shards.size())));
+  }
+
+  private LuceneContext shardContext(LuceneContext context, IndexShard shard) throws IOException {
+    LuceneContext shardContext = context.getShards().get(shard);
+    if (shardContext == null) {
+      shardContext = contextFactory.createLuceneContext(shard, LuceneMode.INDEXING, true);
+      context.getShards().put(shard, shardContext);
+    }
+    return shardContext;
+  }
+
+  private static int shardOf(String routingKey, int shards) {
+    if (shards == 1) return 0;
+    BytesRef bytes = new BytesRef(routingKey);
+    return Math.floorMod(StringHelper.murmurhash3_x86_32(bytes.bytes, bytes.offset, bytes.length, 0), shards);
+  }
+
+  /**
+   * Shards that can hold matches: the time partitions overlapping [since, until], and with username routing
+   * only the user's hash shard of each
+   */
+  public Predicate<IndexShard> shardFilter(String username, LocalDate since, LocalDate until) {
+    PartitionGranularity partitioning = contextFactory.getTweetPartitioning();
+    Integer userShard = routeByUsername && username != null ? shardOf(username, contextFactory.getTweetShards()) : null;
+    return shard -> partitioning.overlaps(shard.partition(), since, until)
+      && (userShard == null || shard.shard() == null || userShard.equals(shard.shard()));
+  }
+
+  /**
+   * Fails on what a search would reject, before anything of it is searched or streamed
+   *
+   * @throws IllegalArgumentException on an unknown field, fields asked for with pointers or an invalid cursor
+   */
+  public void validate(SearchQuery searchQuery) {
+    Projection.of(searchQuery);
+    SearchCursor.decode(searchQuery.getCursor());
   }
 
   @Override
-  public List<SearchHit<Tweet>> search(LuceneContext context, SearchQuery searchQuery) {
-    try (IndexReader reader = DirectoryReader.open(context.getDirectory())) {
-      IndexSearcher searcher = new IndexSearcher(reader);
-      BooleanQuery.Builder bqb = new BooleanQuery.Builder();
-      QueryParser parser = new QueryParser(IndexField.TWEET.getName(), context.getAnalyzer());
-      Query textQuery = parser.parse(searchQuery.getQuery());
-      bqb.add(textQuery, BooleanClause.Occur.MUST);
-      if (searchQuery.getUsername() != null) {
-        Query usernameQuery = new TermQuery(new Term(IndexField.USERNAME.getName(), searchQuery.getUsername()));
-        bqb.add(usernameQuery, BooleanClause.Occur.MUST);
-      }
-      Query query = bqb.build();
+  public SearchResults<Tweet> search(IndexSearcher searcher, SearchQuery searchQuery) {
+    Projection projection = Projection.of(searchQuery);
+    try {
+      Query query = buildQuery(searchQuery);
       logger.info("Searching for the query : [{}]", query);
-      PriorityQueue<SearchHit<Tweet>> hits = searcher.search(query, new TweetCollectorManager());
-      logger.info("Searched [{}] tweets for the query [{}]", hits.size(), query);
-      List<SearchHit<Tweet>> results = new ArrayList<>();
-      final int n = hits.size();
-      searchQuery.setTopN(searchQuery.getTopN() == null ? Integer.MAX_VALUE : searchQuery.getTopN());
-      while (!hits.isEmpty() && (n - hits.size()) < searchQuery.getTopN()) {
-        results.add(hits.poll());
+      final int topN = searchQuery.getTopN() == null ? defaultPageSize : searchQuery.getTopN();
+      if (topN <= 0) return new SearchResults<>(List.of(), null);
+      SearchCursor after = SearchCursor.decode(searchQuery.getCursor());
+      if (searchQuery.isFacets()) {
+        return searchWithFacets(searcher, query, searchQuery.getSort(), topN, after, projection);
       }
-      return results;
+      TopDocs topDocs = topDocs(searcher, query, searchQuery.getSort(), topN, after);
+      logger.info("Searched [{}] tweets of {} for the query [{}]", topDocs.scoreDocs.length, topDocs.totalHits, query);
+      List<SearchHit<Tweet>> hits = hydrate(searcher, topDocs.scoreDocs, projection);
+      return new SearchResults<>(hits, SearchCursor.next(searcher, topDocs.scoreDocs, topN));
     } catch (IOException | ParseException e) {
       logger.error("Search failed : {}", e.getMessage());
-      return List.of();
+      return new SearchResults<>(List.of(), null);
     }
   }
 
-  private Tweet extractTweetFromDocument(Document document) {
-    // todo: should not be getting tweets from indexers but retrieve only the pointer from there
-    return Tweet.builder()
-      .tweetId(parseUtil.parseLong(document.get(IndexField.TWEET_ID.getName())))
-      .username(document.get(IndexField.USERNAME.getName()))
-      .tweet(document.get(IndexField.TWEET.getName()))
-      .tweetDate(dateUtil.convertToLocalDateTime(
-        parseUtil.parseLong(document.get(IndexField.DATE.getName()))))
-      .fullName(document.get(IndexField.FULL_NAME.getName()))
-      .url(document.get(IndexField.URL.getName()))
-      .views(parseUtil.parseInt(document.get(IndexField.VIEWS.getName())))
-      .likes(parseUtil.parseInt(document.get(IndexField.LIKES.getName())))
-      .retweets(parseUtil.parseInt(document.get(IndexField.RETWEETS.getName())))
-      .build();
+  /**
+   * Same hits as {@link #search(IndexSearcher, SearchQuery)}, pushed to the sink as they are hydrated rather than
+   * returned as a page, so only one chunk of tweets is held at a time however many hits are asked for. <br>
+   * Facets are not streamed.
+   *
+   * @return cursor to the next page, null when this was the last one
+   * @throws IOException when the sink fails, e.g. the client went away
+   */
+  public String search(IndexSearcher searcher, SearchQuery searchQuery, IOConsumer<SearchHit<Tweet>> sink) throws IOException {
+    Projection projection = Projection.of(searchQuery);
+    Query query;
+    try {
+      query = buildQuery(searchQuery);
+    } catch (ParseException pe) {
+      logger.error("Search failed : {}", pe.getMessage());
+      return null;
+    }
+    final int topN = searchQuery.getTopN() == null ? defaultPageSize : searchQuery.getTopN();
+    if (topN <= 0) return null;
+    TopDocs topDocs = topDocs(searcher, query, searchQuery.getSort(), topN, SearchCursor.decode(searchQuery.getCursor()));
+    logger.info("Streaming [{}] tweets of {} for the query [{}]", topDocs.scoreDocs.length, topDocs.totalHits, query);
+    for (int from = 0; from < topDocs.scoreDocs.length; from += HYDRATE_CHUNK_SIZE) {
+      int to = Math.min(topDocs.scoreDocs.length, from + HYDRATE_CHUNK_SIZE);
+      ScoreDoc[] chunk = Arrays.copyOfRange(topDocs.scoreDocs, from, to);
+      for (SearchHit<Tweet> hit : hydrate(searcher, chunk, projection)) {
+        sink.accept(hit);
+      }
+    }
+    return SearchCursor.next(searcher, topDocs.scoreDocs, topN);
   }
 
-  public List<Tweet> getIndexedTweets(LuceneContext context) {
-    List<Tweet> indexedTweets = new ArrayList<>();
-    try (IndexReader reader = DirectoryReader.open(context.getDirectory())) {
-      for (LeafReaderContext leafContext : reader.leaves()) {
-        LeafReader leafReader = leafContext.reader();
-        Bits liveDocs = leafReader.getLiveDocs();
-        for (int i = 0; i < leafReader.maxDoc(); i++) {
-          if (liveDocs == null || liveDocs.get(i)) {
-            Document document = leafReader.storedFields().document(i);
-            indexedTweets.add(extractTweetFromDocument(document));
-          }
+  private Query buildQuery(SearchQuery searchQuery) throws ParseException {
+    BooleanQuery.Builder bqb = new BooleanQuery.Builder();
+    if (searchQuery.getQuery() != null) {
+      Query textQuery = queryParsers.parse(EngineType.TWEETS, IndexField.TWEET.getName(), searchQuery.isStemming(), searchQuery.getQuery());
+      bqb.add(textQuery, BooleanClause.Occur.MUST);
+    } else {
+      // no text, e.g. a user's timeline: the filters alone select the tweets
+      bqb.add(new MatchAllDocsQuery(), BooleanClause.Occur.MUST);
+    }
+    if (searchQuery.getUsername() != null) {
+      Query usernameQuery = new TermQuery(new Term(IndexField.USERNAME.getName(), searchQuery.getUsername()));
+      bqb.add(usernameQuery, BooleanClause.Occur.MUST);
+    }
+    if (searchQuery.getSince() != null || searchQuery.getUntil() != null) {
+      // partitions wholly outside the range are not even acquired, this trims the partially covered ones
+      long since = searchQuery.getSince() == null ? Long.MIN_VALUE : dateUtil.convertToLong(searchQuery.getSince().atStartOfDay());
+      long until = searchQuery.getUntil() == null ? Long.MAX_VALUE : dateUtil.convertToLong(searchQuery.getUntil().plusDays(1).atStartOfDay()) - 1;
+      bqb.add(LongField.newRangeQuery(IndexField.DATE.getName(), since, until), BooleanClause.Occur.FILTER);
+    }
+    addRangeFilter(bqb, IndexField.LIKES, searchQuery.getMinLikes(), searchQuery.getMaxLikes());
+    addRangeFilter(bqb, IndexField.RETWEETS, searchQuery.getMinRetweets(), searchQuery.getMaxRetweets());
+    addRangeFilter(bqb, IndexField.VIEWS, searchQuery.getMinViews(), searchQuery.getMaxViews());
+    if (searchQuery.getSort() == SearchQuery.Sort.RELEVANCE) {
+      addEngagementSignals(bqb, searchQuery);
+    }
+    return bqb.build();
+  }
+
+  private TopDocs topDocs(IndexSearcher searcher, Query query, SearchQuery.Sort sort, int topN, SearchCursor after) throws IOException {
+    return switch (sort) {
+      case RELEVANCE -> searcher.search(query, new TopHitsCollectorManager(topN, after == null ? null : after.toScoreDoc()));
+      case DATE -> searchNewestFirst(searcher, query, topN, after);
+      case LIKES, RETWEETS, VIEWS -> searchSorted(searcher, query, topN, sortOf(sort), after);
+    };
+  }
+
+  /**
+   * Non-scoring clause on an engagement count, matched on the points or on the doc values of the field,
+   * whichever is cheaper for the rest of the query
+   */
+  private static void addRangeFilter(BooleanQuery.Builder bqb, IndexField field, Integer min, Integer max) {
+    if (min == null && max == null) return;
+    int lower = min == null ? Integer.MIN_VALUE : min;
+    int upper = max == null ? Integer.MAX_VALUE : max;
+    bqb.add(IntField.newRangeQuery(field.getName(), lower, upper), BooleanClause.Occur.FILTER);
+  }
+
+  /**
+   * Optional clauses adding bounded engagement scores to BM25: saturation of likes and retweets, and the log of views.
+   * Feature scores have known maximums, so block-max WAND keeps skipping the docs that can not make the top n. <br>
+   * The saturation pivots are derived from the index; a weight of 0 leaves the signal out.
+   */
+  private void addEngagementSignals(BooleanQuery.Builder bqb, SearchQuery searchQuery) {
+    String features = IndexField.FEATURES.getName();
+    addSignal(bqb, FeatureField.newSaturationQuery(features, IndexField.LIKES.getName()),
+      Objects.requireNonNullElse(searchQuery.getLikesBoost(), likesBoost));
+    addSignal(bqb, FeatureField.newSaturationQuery(features, IndexField.RETWEETS.getName()),
+      Objects.requireNonNullElse(searchQuery.getRetweetsBoost(), retweetsBoost));
+    addSignal(bqb, FeatureField.newLogQuery(features, IndexField.VIEWS.getName(), 1f, 1f),
+      Objects.requireNonNullElse(searchQuery.getViewsBoost(), viewsBoost));
+  }
+
+  private static void addSignal(BooleanQuery.Builder bqb, Query featureQuery, float weight) {
+    if (weight > 0) {
+      bqb.add(new BoostQuery(featureQuery, weight), BooleanClause.Occur.SHOULD);
+    }
+  }
+
+  /**
+   * Decodes the requested attributes of the tweet from its payload, the other stored fields are not read
+   */
+  private Tweet extractTweet(StoredFields storedFields, int doc, Set<IndexField> fields) throws IOException {
+    TweetPayload.Visitor visitor = new TweetPayload.Visitor(fields, dateUtil);
+    storedFields.document(doc, visitor);
+    return visitor.getTweet();
+  }
+
+  /**
+   * Pushes every indexed tweet to the sink, segment by segment in docId order, so stored fields are decoded
+   * sequentially and only one chunk of tweets is held at a time
+   *
+   * @return number of tweets exported
+   */
+  public long exportTweets(IndexSearcher searcher, IOConsumer<Tweet> sink) throws IOException {
+    long exported = 0;
+    List<ScoreDoc> chunk = new ArrayList<>(HYDRATE_CHUNK_SIZE);
+    for (LeafReaderContext leafContext : searcher.getIndexReader().leaves()) {
+      LeafReader leafReader = leafContext.reader();
+      Bits liveDocs = leafReader.getLiveDocs();
+      for (int i = 0; i < leafReader.maxDoc(); i++) {
+        if (liveDocs == null || liveDocs.get(i)) {
+          chunk.add(new ScoreDoc(leafContext.docBase + i, Float.NaN));
+          if (chunk.size() == HYDRATE_CHUNK_SIZE) exported += exportChunk(searcher, chunk, sink);
         }
       }
-      logger.info("Total Indexed Tweets (leaf reader): {}", indexedTweets.size());
-    } catch (IOException ioe) {
-      logger.error("Error reading index: {}", ioe.getMessage(), ioe);
     }
-    return indexedTweets;
+    exported += exportChunk(searcher, chunk, sink);
+    logger.info("Exported {} indexed tweets", exported);
+    return exported;
   }
 
-  public List<Tweet> searchByUsername(LuceneContext context, String username) {
-    try (IndexReader reader = DirectoryReader.open(context.getDirectory())) {
-      IndexSearcher searcher = new IndexSearcher(reader);
-      Query query = new TermQuery(new Term(IndexField.USERNAME.getName(), username));
-      logger.info("Tweets hit count {} by username {}", searcher.count(query), username);
-      PriorityQueue<SearchHit<Tweet>> hits = searcher.search(query, new TweetCollectorManager());
-      List<Tweet> results = new ArrayList<>();
-      while (!hits.isEmpty()) {
-        results.add(hits.poll().getHit());
-      }
-      return results;
-    } catch (IOException ioe) {
-      logger.error("Error reading index for user {}: {}", username, ioe.getMessage(), ioe);
-      return List.of();
+  private int exportChunk(IndexSearcher searcher, List<ScoreDoc> chunk, IOConsumer<Tweet> sink) throws IOException {
+    for (SearchHit<Tweet> hit : hydrate(searcher, chunk.toArray(new ScoreDoc[0]), Projection.ALL)) {
+      sink.accept(hit.getHit());
     }
+    int exported = chunk.size();
+    chunk.clear();
+    return exported;
   }
 
-  private final class TweetCollectorManager implements CollectorManager<TweetsCollector, PriorityQueue<SearchHit<Tweet>>> {
-    @Override
-    public TweetsCollector newCollector() {
-      return new TweetsCollector();
+  /**
+   * Words found in at least {@code twitter.suggest.min.df} tweets, weighted by their document frequency. <br>
+   * The tweets are indexed with both the words and their stems, so a term that other terms stem to, and that is not
+   * found in more tweets than those together, is taken for a bare stem like "happi" and left out.
+   */
+  @Override
+  public Map<String, Long> suggestions(IndexSearcher searcher) throws IOException {
+    Map<String, Long> suggestions = new HashMap<>();
+    Terms terms = MultiTerms.getTerms(searcher.getIndexReader(), IndexField.TWEET.getName());
+    if (terms == null) return suggestions;
+    Map<String, Long> variants = new HashMap<>();
+    EnglishStemmer stemmer = new EnglishStemmer();
+    TermsEnum termsEnum = terms.iterator();
+    BytesRef term;
+    while ((term = termsEnum.next()) != null) {
+      String word = term.utf8ToString();
+      long docFreq = termsEnum.docFreq();
+      stemmer.setCurrent(word);
+      stemmer.stem();
+      String stem = stemmer.getCurrent();
+      if (!stem.equals(word)) variants.merge(stem, docFreq, Long::sum);
+      if (docFreq >= suggestMinDocFreq && word.length() > 1 && Character.isLetter(word.charAt(0))) {
+        suggestions.put(word, docFreq);
+      }
     }
+    suggestions.entrySet().removeIf(suggestion -> suggestion.getValue() <= variants.getOrDefault(suggestion.getKey(), 0L));
+    return suggestions;
+  }
 
-    @Override
-    public PriorityQueue<SearchHit<Tweet>> reduce(Collection<TweetsCollector> collectors) {
-      final PriorityQueue<SearchHit<Tweet>> hits = new PriorityQueue<>((h1, h2) -> Float.compare(h2.getScore(), h1.getScore()));
-      for (TweetsCollector collector : collectors) {
-        for (SearchHit<Tweet> hit : collector.getHits()) {
-          hits.offer(hit);
+  /**
+   * Newest tweets first, one time partition at a time. The partitions of a sharded searcher come newest first and
+   * cover disjoint date ranges, so once the page is full the older partitions are not searched at all. <br>
+   * The hash shards of a partition are searched one after the other and merged by date. Their doc ids are rebased
+   * onto the doc ids of the sharded searcher, which is also the order ties on the date are broken in.
+   */
+  private TopDocs searchNewestFirst(IndexSearcher searcher, Query query, int topN, SearchCursor after) throws IOException {
+    List<IndexShard> indexShards = searcher instanceof ShardedIndexSearcher sharded ? sharded.getIndexShards() : List.of(IndexShard.of(EngineType.TWEETS));
+    List<IndexSearcher> shards = searcher instanceof ShardedIndexSearcher sharded ? sharded.getShards() : List.of(searcher);
+    List<ScoreDoc> page = new ArrayList<>(topN);
+    long totalHits = 0;
+    boolean exact = true;
+    int from = 0;
+    int docBase = 0;
+    while (from < shards.size() && page.size() < topN) {
+      int to = from;
+      int partitionDocBase = docBase;
+      while (to < shards.size() && Objects.equals(indexShards.get(to).partition(), indexShards.get(from).partition())) {
+        docBase += shards.get(to++).getIndexReader().maxDoc();
+      }
+      // a partition before the one of the cursor only holds newer tweets, all of them on earlier pages
+      if (after == null || after.doc() < docBase) {
+        TopFieldDocs[] shardDocs = new TopFieldDocs[to - from];
+        int shardDocBase = partitionDocBase;
+        for (int i = from; i < to; i++) {
+          shardDocs[i - from] = searchShardNewestFirst(shards.get(i), query, topN - page.size(), after, shardDocBase, i);
+          totalHits += shardDocs[i - from].totalHits.value();
+          exact &= shardDocs[i - from].totalHits.relation() == TotalHits.Relation.EQUAL_TO;
+          shardDocBase += shards.get(i).getIndexReader().maxDoc();
         }
+        page.addAll(Arrays.asList(TopDocs.merge(NEWEST_FIRST, topN - page.size(), shardDocs).scoreDocs));
       }
-      return hits;
+      from = to;
+    }
+    TotalHits.Relation relation = exact && from == shards.size() ? TotalHits.Relation.EQUAL_TO : TotalHits.Relation.GREATER_THAN_OR_EQUAL_TO;
+    return new TopDocs(new TotalHits(totalHits, relation), page.toArray(new ScoreDoc[0]));
+  }
+
+  private static Sort sortOf(SearchQuery.Sort sort) {
+    return switch (sort) {
+      case RELEVANCE -> Sort.RELEVANCE;
+      case DATE -> NEWEST_FIRST;
+      case LIKES -> MOST_LIKED;
+      case RETWEETS -> MOST_RETWEETED;
+      case VIEWS -> MOST_VIEWED;
+    };
+  }
+
+  /**
+   * The page and the facets of all the matches, collected in a single pass over the matches. <br>
+   * Facets need every match, so neither the score based skipping nor the newest partition first early exit apply,
+   * the hits are still the same as without facets.
+   */
+  private SearchResults<Tweet> searchWithFacets(IndexSearcher searcher, Query query, SearchQuery.Sort sort, int topN,
+                                                SearchCursor after, Projection projection) throws IOException {
+    CollectorManager<?, ? extends TopDocs> hitsManager = sort == SearchQuery.Sort.RELEVANCE
+      ? new TopHitsCollectorManager(topN, after == null ? null : after.toScoreDoc())
+      : new TopFieldCollectorManager(sortOf(sort), topN, after == null ? null : after.toFieldDoc(sortOf(sort).getSort()[0]), Integer.MAX_VALUE);
+    Object[] results = searcher.search(query, new MultiCollectorManager(hitsManager, new TweetFacetsCollectorManager(dateUtil, facetSize)));
+    TopDocs topDocs = (TopDocs) results[0];
+    @SuppressWarnings("unchecked")
+    Map<String, List<FacetCount>> facets = (Map<String, List<FacetCount>>) results[1];
+    logger.info("Searched [{}] tweets of {} with facets for the query [{}]", topDocs.scoreDocs.length, topDocs.totalHits, query);
+    List<SearchHit<Tweet>> hits = hydrate(searcher, topDocs.scoreDocs, projection);
+    return new SearchResults<>(hits, SearchCursor.next(searcher, topDocs.scoreDocs, topN), facets);
+  }
+
+  /**
+   * Top hits by the doc values of a single field, without computing scores; ties are broken by doc id,
+   * and stored fields are only read for the returned page
+   */
+  private TopDocs searchSorted(IndexSearcher searcher, Query query, int topN, Sort sort, SearchCursor after) throws IOException {
+    FieldDoc fieldAfter = after == null ? null : after.toFieldDoc(sort.getSort()[0]);
+    return searcher.searchAfter(fieldAfter, query, topN, sort, false);
+  }
+
+  /**
+   * @param after cursor in doc ids of the sharded searcher; ties on its date are kept in the shards after its
+   *              own shard and dropped in the shards before it
+   */
+  private TopFieldDocs searchShardNewestFirst(IndexSearcher shard, Query query, int n, SearchCursor after,
+                                              int docBase, int shardIndex) throws IOException {
+    int maxDoc = shard.getIndexReader().maxDoc();
+    if (maxDoc == 0) {
+      return new TopFieldDocs(new TotalHits(0, TotalHits.Relation.EQUAL_TO), new FieldDoc[0], NEWEST_FIRST.getSort());
+    }
+    FieldDoc shardAfter = null;
+    if (after != null) {
+      int doc = after.doc() - docBase;
+      shardAfter = new FieldDoc(doc < 0 ? -1 : Math.min(doc, maxDoc - 1), Float.NaN, new Object[]{after.value()});
     }
+    // counting stops at n hits, so with the index sort every segment is only collected until its page is full
+    TopFieldDocs topDocs = shard.search(query, new TopFieldCollectorManager(NEWEST_FIRST, n, shardAfter, n));
+    for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
+      scoreDoc.doc += docBase;
+      scoreDoc.shardIndex = shardIndex;
+    }
+    return topDocs;
   }
 
-  private final class TweetsCollector extends SimpleCollector {
-    private LeafReaderContext context;
-    private Scorable scorer;
+  /**
+   * The attributes of the hits to read and return
+   *
+   * @param sortValues also returns the value every hit is sorted by, for pointer only hits; null otherwise
+   */
+  private record Projection(Set<IndexField> fields, SearchQuery.Sort sortValues) {
 
-    @Getter
-    private final List<SearchHit<Tweet>> hits = new ArrayList<>();
+    private static final Projection ALL = new Projection(TweetPayload.ALL_FIELDS, null);
 
-    @Override
-    public void doSetNextReader(LeafReaderContext context) {
-      this.context = context;
+    private static Projection of(SearchQuery searchQuery) {
+      boolean hasFields = searchQuery.getFields() != null && !searchQuery.getFields().isEmpty();
+      if (searchQuery.isPointers()) {
+        if (hasFields) throw new IllegalArgumentException("Fields can not be asked for with pointers, a pointer is only the tweet id");
+        return new Projection(EnumSet.of(IndexField.TWEET_ID), searchQuery.getSort());
+      }
+      if (!hasFields) return ALL;
+      Set<IndexField> fields = EnumSet.noneOf(IndexField.class);
+      for (String name : searchQuery.getFields()) {
+        IndexField field = RESPONSE_FIELDS.get(name);
+        if (field == null) {
+          throw new IllegalArgumentException("Unknown tweet field " + name + ", expected any of " + new TreeSet<>(RESPONSE_FIELDS.keySet()));
+        }
+        fields.add(field);
+      }
+      return new Projection(fields, null);
     }
+  }
 
-    @Override
-    public void setScorer(Scorable scorer) {
-      this.scorer = scorer;
+  /**
+   * Tweets of the final page only, read in docId order so each compressed block or doc values block is decoded once.
+   * <br> Only the projected attributes are read: from doc values when they all have some, else from the stored
+   * payloads, or batch loaded from the {@link TweetHydrator} by the ids read from doc values.
+   */
+  private List<SearchHit<Tweet>> hydrate(IndexSearcher searcher, ScoreDoc[] scoreDocs, Projection projection) throws IOException {
+    Integer[] byDocId = new Integer[scoreDocs.length];
+    for (int i = 0; i < scoreDocs.length; i++) byDocId[i] = i;
+    Arrays.sort(byDocId, Comparator.comparingInt(i -> scoreDocs[i].doc));
+    Tweet[] tweets = new Tweet[scoreDocs.length];
+    if (DOC_VALUES_FIELDS.containsAll(projection.fields())) {
+      readDocValues(searcher, scoreDocs, byDocId, projection, tweets);
+    } else if (tweetHydrator == null) {
+      StoredFields storedFields = searcher.storedFields();
+      for (int i : byDocId) {
+        tweets[i] = extractTweet(storedFields, scoreDocs[i].doc, projection.fields());
+      }
+    } else {
+      readDocValues(searcher, scoreDocs, byDocId, new Projection(EnumSet.of(IndexField.TWEET_ID), null), tweets);
+      loadTweets(tweets, projection.fields());
+    }
+    List<SearchHit<Tweet>> hits = new ArrayList<>(scoreDocs.length);
+    for (int i = 0; i < scoreDocs.length; i++) {
+      hits.add(new SearchHit<>(tweets[i], scoreDocs[i].score, scoreDocs[i].doc));
     }
+    return hits;
+  }
 
-    @Override
-    public void collect(int docId) throws IOException {
-      Document doc = context.reader().storedFields().document(docId);
-      Tweet tweet = extractTweetFromDocument(doc);
-      hits.add(new SearchHit<>(tweet, scorer.score(), context.docBase + docId));
-      logger.debug("Score for docId {}: {}", docId, scorer.score());
+  /**
+   * Tweets holding only the projected attributes, all of them read from doc values, and the values they were sorted by
+   */
+  private void readDocValues(IndexSearcher searcher, ScoreDoc[] scoreDocs, Integer[] byDocId, Projection projection,
+                             Tweet[] tweets) throws IOException {
+    List<LeafReaderContext> leaves = searcher.getIndexReader().leaves();
+    LeafReaderContext leaf = null;
+    Map<IndexField, SortedNumericDocValues> numbers = new EnumMap<>(IndexField.class);
+    SortedSetDocValues usernames = null;
+    for (int i : byDocId) {
+      int doc = scoreDocs[i].doc;
+      if (leaf == null || doc >= leaf.docBase + leaf.reader().maxDoc()) {
+        leaf = leaves.get(ReaderUtil.subIndex(doc, leaves));
+        for (IndexField field : projection.fields()) {
+          if (field == IndexField.USERNAME) {
+            usernames = DocValues.getSortedSet(leaf.reader(), field.getName());
+          } else {
+            numbers.put(field, DocValues.getSortedNumeric(leaf.reader(), field.getName()));
+          }
+        }
+      }
+      int leafDoc = doc - leaf.docBase;
+      Tweet.TweetBuilder tweet = Tweet.builder();
+      for (Map.Entry<IndexField, SortedNumericDocValues> number : numbers.entrySet()) {
+        if (number.getValue().advanceExact(leafDoc)) setNumber(tweet, number.getKey(), number.getValue().nextValue());
+      }
+      if (usernames != null && usernames.advanceExact(leafDoc)) {
+        tweet.username(usernames.lookupOrd(usernames.nextOrd()).utf8ToString());
+      }
+      if (projection.sortValues() != null && scoreDocs[i] instanceof FieldDoc fieldDoc) {
+        IndexField sortField = switch (projection.sortValues()) {
+          case RELEVANCE -> null;
+          case DATE -> IndexField.DATE;
+          case LIKES -> IndexField.LIKES;
+          case RETWEETS -> IndexField.RETWEETS;
+          case VIEWS -> IndexField.VIEWS;
+        };
+        if (sortField != null) setNumber(tweet, sortField, ((Number) fieldDoc.fields[0]).longValue());
+      }
+      tweets[i] = tweet.build();
+    }
+  }
+
+  private void setNumber(Tweet.TweetBuilder tweet, IndexField field, long value) {
+    switch (field) {
+      case TWEET_ID -> tweet.tweetId(value);
+      case DATE -> tweet.tweetDate(dateUtil.convertToLocalDateTime(value));
+      case VIEWS -> tweet.views((int) value);
+      case LIKES -> tweet.likes((int) value);
+      case RETWEETS -> tweet.retweets((int) value);
+      default -> throw new IllegalStateException("Not a numeric attribute " + field);
     }
+  }
 
-    @Override
-    public ScoreMode scoreMode() {
-      return ScoreMode.COMPLETE;
+  /**
+   * Replaces the pointers with the projected attributes of the full tweets, loaded in one batch; a tweet missing from
+   * the store stays a pointer
+   */
+  private void loadTweets(Tweet[] pointers, Set<IndexField> fields) {
+    List<Long> tweetIds = Arrays.stream(pointers).map(Tweet::getTweetId).filter(Objects::nonNull).toList();
+    if (tweetIds.isEmpty()) return;
+    Map<Long, Tweet> tweets = tweetHydrator.hydrate(tweetIds);
+    if (tweets.size() < tweetIds.size()) {
+      logger.warn("{} of {} tweets are missing from the {} store", tweetIds.size() - tweets.size(), tweetIds.size(),
+        tweetHydrator.getClass().getSimpleName());
+    }
+    for (int i = 0; i < pointers.length; i++) {
+      Tweet tweet = pointers[i].getTweetId() == null ? null : tweets.get(pointers[i].getTweetId());
+      if (tweet != null) pointers[i] = project(tweet, fields);
     }
   }
 
-}
\ No newline at end of file
+  private static Tweet project(Tweet tweet, Set<IndexField> fields) {
+    if (fields.containsAll(TweetPayload.ALL_FIELDS)) return tweet;
+    return Tweet.builder()
+      .tweetId(fields.contains(IndexField.TWEET_ID) ? tweet.getTweetId() : null)
+      .username(fields.contains(IndexField.USERNAME) ? tweet.getUsername() : null)
+      .fullName(fields.contains(IndexField.FULL_NAME) ? tweet.getFullName() : null)
+      .tweet(fields.contains(IndexField.TWEET) ? tweet.getTweet() : null)
+      .url(fields.contains(IndexField.URL) ? tweet.getUrl() : null)
+      .views(fields.contains(IndexField.VIEWS) ? tweet.getViews() : null)
+      .likes(fields.contains(IndexField.LIKES) ? tweet.getLikes() : null)
+      .retweets(fields.contains(IndexField.RETWEETS) ? tweet.getRetweets() : null)
+      .tweetDate(fields.contains(IndexField.DATE) ? tweet.getTweetDate() : null)
+      .build();
+  }
+
+}
@@ -1,6 +1,7 @@
 package com.github.sparrow.lucene.entity;
 
 import lombok.Builder;
+import org.apache.lucene.util.RamUsageEstimator;
 
 @Builder
 public record DictionaryEntry(
@@ -9,6 +10,15 @@ public record DictionaryEntry(
   String partsOfSpeech,
   String source
 ) {
+
+  private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(DictionaryEntry.class);
+
+  /// approximate heap footprint, to bound the result cache by memory
+  public long ramBytesUsed() {
+    return BASE_RAM_BYTES_USED + RamUsageEstimator.sizeOf(word) + RamUsageEstimator.sizeOf(meaning)
+      + RamUsageEstimator.sizeOf(partsOfSpeech) + RamUsageEstimator.sizeOf(source);
+  }
+
   @Override
   public String toString() {
     return "Word: " + word +
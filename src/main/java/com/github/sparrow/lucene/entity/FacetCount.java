@@ -0,0 +1,7 @@
+package com.github.sparrow.lucene.entity;
+
+/**
+ * Number of matching documents with a facet value, e.g. a username or a date bucket
+ */
+public record FacetCount(String value, long count) {
+}
@@ -0,0 +1,76 @@
+package com.github.sparrow.lucene.entity;
+
+import com.github.sparrow.lucene.ShardedIndexSearcher;
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.SortedNumericSortField;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Base64;
+
+/**
+ * Opaque position of the last hit of a page, for {@link IndexSearcher#searchAfter} style deep pagination. <br>
+ * Doc ids are only meaningful for one point-in-time view of the index, so the cursor also carries the
+ * versions of the searcher it was taken from, one per shard, and the next page is searched on those same versions.
+ *
+ * @param value sort value of the last hit when sorted by a field rather than by score
+ */
+public record SearchCursor(long[] versions, int doc, float score, long value) {
+
+  private static final int MAX_SHARDS = 0xFFFF;
+  private static final int HIT_BYTES = Integer.BYTES + Float.BYTES + Long.BYTES;
+
+  public ScoreDoc toScoreDoc() {
+    return new ScoreDoc(doc, score);
+  }
+
+  /**
+   * @param sortField the single int or long field the hits are sorted by, the value is boxed to its type
+   */
+  public FieldDoc toFieldDoc(SortField sortField) {
+    SortField.Type type = sortField instanceof SortedNumericSortField numeric ? numeric.getNumericType() : sortField.getType();
+    return new FieldDoc(doc, score, new Object[]{type == SortField.Type.INT ? (Object) (int) value : value});
+  }
+
+  public String encode() {
+    ByteBuffer buffer = ByteBuffer.allocate(Short.BYTES + versions.length * Long.BYTES + HIT_BYTES).putShort((short) versions.length);
+    for (long version : versions) buffer.putLong(version);
+    buffer.putInt(doc).putFloat(score).putLong(value);
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+  }
+
+  /**
+   * @return null when there is no cursor, i.e. the first page is requested
+   */
+  public static SearchCursor decode(String cursor) {
+    if (cursor == null || cursor.isBlank()) return null;
+    try {
+      ByteBuffer buffer = ByteBuffer.wrap(Base64.getUrlDecoder().decode(cursor.trim()));
+      int shards = buffer.getShort() & MAX_SHARDS;
+      if (shards == 0 || buffer.remaining() != shards * Long.BYTES + HIT_BYTES) {
+        throw new IllegalArgumentException("Invalid cursor : " + cursor);
+      }
+      long[] versions = new long[shards];
+      for (int i = 0; i < shards; i++) versions[i] = buffer.getLong();
+      return new SearchCursor(versions, buffer.getInt(), buffer.getFloat(), buffer.getLong());
+    } catch (IllegalArgumentException | BufferUnderflowException e) {
+      throw new IllegalArgumentException("Invalid cursor : " + cursor, e);
+    }
+  }
+
+  /**
+   * Cursor to the page after {@code page}, or null when this page was the last one
+   *
+   * @param page hits with doc ids of the searcher, field docs when sorted by a single numeric field
+   */
+  public static String next(IndexSearcher searcher, ScoreDoc[] page, int pageSize) {
+    if (page.length == 0 || page.length < pageSize) return null;
+    ScoreDoc last = page[page.length - 1];
+    long value = last instanceof FieldDoc fieldDoc ? ((Number) fieldDoc.fields[0]).longValue() : 0L;
+    return new SearchCursor(ShardedIndexSearcher.versions(searcher), last.doc, last.score, value).encode();
+  }
+
+}
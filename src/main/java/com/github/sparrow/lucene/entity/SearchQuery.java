@@ -1,20 +1,73 @@
 package com.github.sparrow.lucene.entity;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
 import lombok.Builder;
+import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
+import lombok.extern.jackson.Jacksonized;
+
+import java.time.LocalDate;
+import java.util.Locale;
+import java.util.Set;
 
 /**
  * Represents the search questions with different parameters <br>
- * anticipating this gonna get more complex with time
+ * anticipating this gonna get more complex with time <br>
+ * Read from json through its builder, see {@link com.github.sparrow.dto.MultiSearchRequest}
  */
 @Getter
 @Setter
-@Builder
+@Builder(toBuilder = true)
+@Jacksonized
+@EqualsAndHashCode
 public class SearchQuery {
 
   private String query;
   private String username;
   private Integer topN;
+  /// opaque {@link SearchCursor} of the previous page
+  private String cursor;
+  @Builder.Default
+  private boolean stemming = true;
+  /// inclusive date range of the tweets, older and newer time partitions are not searched
+  private LocalDate since;
+  private LocalDate until;
+  /// inclusive engagement ranges, either bound is optional
+  private Integer minLikes;
+  private Integer maxLikes;
+  private Integer minRetweets;
+  private Integer maxRetweets;
+  private Integer minViews;
+  private Integer maxViews;
+  /// weights of the engagement signals added to the relevance score, 0 leaves a signal out; null for the defaults
+  private Float likesBoost;
+  private Float retweetsBoost;
+  private Float viewsBoost;
+  @Builder.Default
+  private Sort sort = Sort.RELEVANCE;
+  /// also count the facets of all the matches
+  private boolean facets;
+  /// only the tweet ids of the hits and the values they are sorted by, for clients hydrating the tweets themselves
+  private boolean pointers;
+  /// names of the {@link Tweet} attributes to return, e.g. tweetId and username; null for all of them
+  private Set<String> fields;
+
+  /**
+   * Every sort but relevance is on the doc values of a single numeric field, highest first
+   */
+  public enum Sort {
+    RELEVANCE,
+    /// newest first
+    DATE,
+    LIKES,
+    RETWEETS,
+    VIEWS;
+
+    @JsonCreator
+    public static Sort of(String name) {
+      return valueOf(name.toUpperCase(Locale.ROOT));
+    }
+  }
 
 }
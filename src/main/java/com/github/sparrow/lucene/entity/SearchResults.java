@@ -0,0 +1,37 @@
+package com.github.sparrow.lucene.entity;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A page of search hits, along with the cursor to fetch the next page <br>
+ * and optionally the facet counts over all the matches, by facet name <br>
+ * Searches with few hits carry spelling corrections of the query; {@code correctedQuery} is set when the hits are of
+ * the first correction instead, and further pages have to be searched with it.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SearchResults<T> {
+
+  private List<SearchHit<T>> hits;
+  private String cursor;
+  private Map<String, List<FacetCount>> facets;
+  private List<String> corrections;
+  private String correctedQuery;
+
+  public SearchResults(List<SearchHit<T>> hits, String cursor) {
+    this(hits, cursor, null);
+  }
+
+  public SearchResults(List<SearchHit<T>> hits, String cursor, Map<String, List<FacetCount>> facets) {
+    this(hits, cursor, facets, null, null);
+  }
+
+}
@@ -0,0 +1,7 @@
+package com.github.sparrow.lucene.entity;
+
+/**
+ * Completion of a query prefix, more popular completions have a higher weight
+ */
+public record Suggestion(String text, long weight) {
+}
@@ -4,6 +4,7 @@ import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Builder;
 import lombok.Getter;
 import lombok.Setter;
+import org.apache.lucene.util.RamUsageEstimator;
 
 import java.time.LocalDateTime;
 
@@ -13,6 +14,11 @@ import java.time.LocalDateTime;
 @JsonInclude(JsonInclude.Include.NON_NULL)
 public class Tweet {
 
+  private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(Tweet.class)
+    + RamUsageEstimator.shallowSizeOfInstance(Long.class)
+    + 3 * RamUsageEstimator.shallowSizeOfInstance(Integer.class)
+    + RamUsageEstimator.shallowSizeOfInstance(LocalDateTime.class);
+
   private Long    tweetId;
   private String  username;
   private String  fullName;
@@ -26,6 +32,12 @@ public class Tweet {
   private Integer retweets;
   private LocalDateTime tweetDate;
 
+  /// approximate heap footprint, to bound the result cache by memory
+  public long ramBytesUsed() {
+    return BASE_RAM_BYTES_USED + RamUsageEstimator.sizeOf(username) + RamUsageEstimator.sizeOf(fullName)
+      + RamUsageEstimator.sizeOf(tweet) + RamUsageEstimator.sizeOf(url);
+  }
+
   @Override
   public String toString() {
     StringBuilder sb = new StringBuilder();
@@ -0,0 +1,41 @@
+package com.github.sparrow.lucene.tools;
+
+import com.github.sparrow.lucene.TweetHydrator;
+import com.github.sparrow.lucene.entity.Tweet;
+import com.github.sparrow.repository.TweetRepository;
+import com.github.sparrow.util.TweetUtil;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * hydrates tweets from the database, with a single IN query per page of hits <br>
+ * the table is filled by the db normalizer, see {@code normalizer.mode.db}
+ */
+@Service("tweetDbHydrator")
+@RequiredArgsConstructor
+public class TweetDBHydrator implements TweetHydrator {
+
+  /// ids bound to one query, bigger pages take a few queries
+  private static final int MAX_IN_IDS = 1000;
+
+  private final TweetRepository tweetRepository;
+  private final TweetUtil tweetUtil;
+
+  @Override
+  public Map<Long, Tweet> hydrate(Collection<Long> tweetIds) {
+    Map<Long, Tweet> tweets = new HashMap<>();
+    List<Long> ids = new ArrayList<>(tweetIds);
+    for (int from = 0; from < ids.size(); from += MAX_IN_IDS) {
+      List<Long> batch = ids.subList(from, Math.min(ids.size(), from + MAX_IN_IDS));
+      tweetRepository.findAllByXIds(batch).forEach(tweetData -> tweets.put(tweetData.getXId(), tweetUtil.toTweet(tweetData)));
+    }
+    return tweets;
+  }
+
+}
@@ -0,0 +1,178 @@
+package com.github.sparrow.lucene.tools;
+
+import com.github.sparrow.lucene.TweetHydrator;
+import com.github.sparrow.lucene.engines.TweetPayload;
+import com.github.sparrow.lucene.entity.Tweet;
+import com.github.sparrow.util.DateUtil;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.lucene.codecs.CodecUtil;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.store.MMapDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.stereotype.Service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * hydrates tweets from a local key-value file written along with the index, {@code {index.path}/tweets.kv} <br>
+ * The file holds the {@link TweetPayload} of every tweet, followed by a table of the tweet ids, sorted, and the offsets
+ * of their payloads. The table is read onto the heap, the payloads are memory mapped and decoded on lookup.
+ */
+@Service("tweetFileHydrator")
+@PropertySource("classpath:sparrow.properties")
+public class TweetFileHydrator implements TweetHydrator {
+
+  private static final Logger logger = LoggerFactory.getLogger(TweetFileHydrator.class);
+
+  private static final String CODEC = "sparrow-tweets";
+  private static final int VERSION = 0;
+  private static final String FILE_NAME = "tweets.kv";
+  private static final String TEMP_FILE_NAME = "tweets.tmp";
+
+  private final DateUtil dateUtil;
+  /// inputs of the replaced files, lookups may still be reading them
+  private final List<Closeable> retired = new ArrayList<>();
+  private Directory directory;
+  private volatile KeyValueFile file;
+
+  @Value("${index.path}")
+  private String indexPath;
+
+  private record KeyValueFile(IndexInput input, long[] ids, long[] offsets) {
+  }
+
+  public TweetFileHydrator(DateUtil dateUtil) {
+    this.dateUtil = dateUtil;
+  }
+
+  @PostConstruct
+  public void loadFile() throws IOException {
+    Path path = Path.of(System.getProperty("user.home") + indexPath);
+    Files.createDirectories(path);
+    directory = new MMapDirectory(path);
+    if (!Set.of(directory.listAll()).contains(FILE_NAME)) return;
+    try {
+      file = open();
+      logger.info("Loaded {} tweets from {}", file.ids().length, FILE_NAME);
+    } catch (IOException ioe) {
+      logger.warn("Could not load {}, the tweets will be stored again : {}", FILE_NAME, ioe.getMessage());
+    }
+  }
+
+  @PreDestroy
+  public synchronized void close() throws IOException {
+    if (file != null) retired.add(file.input());
+    IOUtils.close(retired);
+    directory.close();
+  }
+
+  @Override
+  public Map<Long, Tweet> hydrate(Collection<Long> tweetIds) {
+    KeyValueFile current = file;
+    Map<Long, Tweet> tweets = new HashMap<>();
+    if (current == null) return tweets;
+    // ascending ids read the payloads front to back
+    long[] ids = tweetIds.stream().mapToLong(Long::longValue).sorted().toArray();
+    try {
+      IndexInput input = current.input().clone();
+      for (long id : ids) {
+        int index = Arrays.binarySearch(current.ids(), id);
+        if (index < 0) continue;
+        input.seek(current.offsets()[index]);
+        tweets.put(id, TweetPayload.decode(input, TweetPayload.ALL_FIELDS, dateUtil));
+      }
+    } catch (IOException ioe) {
+      throw new RuntimeException(ioe.getMessage());
+    }
+    return tweets;
+  }
+
+  @Override
+  public boolean needsStoring() {
+    return file == null;
+  }
+
+  /**
+   * Written to a temporary file first and then renamed, so a crash while storing never leaves a torn file behind
+   */
+  @Override
+  public synchronized void store(List<Tweet> tweets) throws IOException {
+    List<Tweet> byId = tweets.stream()
+      .filter(tweet -> tweet.getTweetId() != null)
+      .sorted(Comparator.comparing(Tweet::getTweetId))
+      .toList();
+    long[] ids = new long[byId.size()];
+    long[] offsets = new long[byId.size()];
+    int count = 0;
+    IOUtils.deleteFilesIgnoringExceptions(directory, TEMP_FILE_NAME);
+    try (IndexOutput out = directory.createOutput(TEMP_FILE_NAME, IOContext.DEFAULT)) {
+      CodecUtil.writeHeader(out, CODEC, VERSION);
+      for (Tweet tweet : byId) {
+        // a duplicated id keeps its last tweet, as the index does
+        if (count > 0 && ids[count - 1] == tweet.getTweetId()) count--;
+        ids[count] = tweet.getTweetId();
+        offsets[count++] = out.getFilePointer();
+        Long date = tweet.getTweetDate() == null ? null : dateUtil.convertToLong(tweet.getTweetDate());
+        BytesRef payload = TweetPayload.encode(tweet, date);
+        out.writeBytes(payload.bytes, payload.offset, payload.length);
+      }
+      long table = out.getFilePointer();
+      out.writeVInt(count);
+      for (int i = 0; i < count; i++) {
+        out.writeLong(ids[i]);
+        out.writeLong(offsets[i]);
+      }
+      out.writeLong(table);
+      CodecUtil.writeFooter(out);
+    }
+    directory.sync(List.of(TEMP_FILE_NAME));
+    IOUtils.deleteFilesIgnoringExceptions(directory, FILE_NAME);
+    directory.rename(TEMP_FILE_NAME, FILE_NAME);
+    directory.syncMetaData();
+    if (file != null) retired.add(file.input());
+    file = open();
+    logger.info("Stored {} tweets in {}", count, FILE_NAME);
+  }
+
+  private KeyValueFile open() throws IOException {
+    IndexInput input = directory.openInput(FILE_NAME, IOContext.DEFAULT);
+    try {
+      CodecUtil.checkHeader(input, CODEC, VERSION, VERSION);
+      CodecUtil.retrieveChecksum(input);
+      input.seek(input.length() - CodecUtil.footerLength() - Long.BYTES);
+      input.seek(input.readLong());
+      int count = input.readVInt();
+      long[] ids = new long[count];
+      long[] offsets = new long[count];
+      for (int i = 0; i < count; i++) {
+        ids[i] = input.readLong();
+        offsets[i] = input.readLong();
+      }
+      return new KeyValueFile(input, ids, offsets);
+    } catch (IOException | RuntimeException e) {
+      IOUtils.closeWhileHandlingException(input);
+      throw e;
+    }
+  }
+
+}
@@ -5,8 +5,12 @@ import jakarta.transaction.Transactional;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface TweetRepository extends JpaRepository<TweetData, Integer> {
 
@@ -15,4 +19,7 @@ public interface TweetRepository extends JpaRepository<TweetData, Integer> {
   @Query("delete from TweetData")
   void deleteAllInBulk();
 
+  @Query("select t from TweetData t where t.xId in :xIds")
+  List<TweetData> findAllByXIds(@Param("xIds") Collection<Long> xIds);
+
 }
@@ -1,13 +1,13 @@
 package com.github.sparrow.service;
 
 import com.github.sparrow.dto.ArticleSearchResponse;
-import com.github.sparrow.lucene.entity.SearchHit;
+import com.github.sparrow.lucene.entity.SearchResults;
 
 import java.util.List;
 
 public interface ArticleService {
 
-  List<SearchHit<ArticleSearchResponse>> search(String query, Integer topN, Boolean stem);
+  SearchResults<ArticleSearchResponse> search(String query, Integer topN, Boolean stem, String cursor);
 
   List<String> getIndexedTokens();
 
@@ -9,4 +9,8 @@ public interface DictionaryService {
 
   List<SearchHit<DictionaryEntry>> search(String query);
 
+  List<DictionaryEntry> lookup(String word);
+
+  List<String> lookupPrefix(String prefix, int n);
+
 }
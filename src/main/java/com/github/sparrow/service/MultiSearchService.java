@@ -0,0 +1,12 @@
+package com.github.sparrow.service;
+
+import com.github.sparrow.dto.MultiSearchRequest;
+import com.github.sparrow.dto.MultiSearchResponse;
+
+import java.util.List;
+
+public interface MultiSearchService {
+
+  List<MultiSearchResponse> search(List<MultiSearchRequest> requests);
+
+}
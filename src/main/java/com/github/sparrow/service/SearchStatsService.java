@@ -0,0 +1,17 @@
+package com.github.sparrow.service;
+
+import com.github.sparrow.lucene.IndexStats;
+import com.github.sparrow.lucene.QueryResultCache;
+import com.github.sparrow.lucene.SearchMetrics;
+
+import java.util.List;
+
+public interface SearchStatsService {
+
+  QueryResultCache.Stats getCacheStats();
+
+  List<SearchMetrics.LatencyStats> getLatencyStats();
+
+  List<IndexStats> getIndexStats();
+
+}
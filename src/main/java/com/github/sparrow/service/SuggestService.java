@@ -0,0 +1,12 @@
+package com.github.sparrow.service;
+
+import com.github.sparrow.lucene.EngineType;
+import com.github.sparrow.lucene.entity.Suggestion;
+
+import java.util.List;
+
+public interface SuggestService {
+
+  List<Suggestion> suggest(EngineType engineType, String prefix, int n);
+
+}
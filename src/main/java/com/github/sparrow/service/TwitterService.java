@@ -1,16 +1,47 @@
 package com.github.sparrow.service;
 
 import com.github.sparrow.lucene.entity.SearchHit;
+import com.github.sparrow.lucene.entity.SearchQuery;
+import com.github.sparrow.lucene.entity.SearchResults;
 import com.github.sparrow.lucene.entity.Tweet;
+import org.apache.lucene.util.IOConsumer;
 
+import java.io.IOException;
 import java.util.List;
 
 public interface TwitterService {
 
-  List<SearchHit<Tweet>> search(String query, Integer topN, String username, Boolean stem);
+  SearchResults<Tweet> search(SearchQuery searchQuery);
 
-  List<Tweet> searchByUsername(String username);
+  /**
+   * Pushes the hits of the search to the sink as they are hydrated, instead of returning them as a page
+   *
+   * @return cursor to the next page
+   */
+  String search(SearchQuery searchQuery, IOConsumer<SearchHit<Tweet>> sink) throws IOException;
+
+  /**
+   * Rejects an invalid search up front, so a streamed search fails before its response is started
+   *
+   * @throws IllegalArgumentException when the search is invalid
+   */
+  void validate(SearchQuery searchQuery);
+
+  /**
+   * Newest tweets of a user, the first page of {@link #timeline} without its cursor
+   */
+  List<Tweet> searchByUsername(String username, Integer topN);
+
+  /**
+   * Newest tweets of a user, a page at a time
+   */
+  SearchResults<Tweet> timeline(String username, Integer topN, String cursor);
 
   Integer getAllIndexedTweets();
 
+  /**
+   * Streams every indexed tweet to the sink
+   */
+  void exportTweets(IOConsumer<Tweet> sink) throws IOException;
+
 }
@@ -2,39 +2,67 @@ package com.github.sparrow.service.impl;
 
 import com.github.sparrow.dto.ArticleSearchResponse;
 import com.github.sparrow.lucene.EngineType;
-import com.github.sparrow.lucene.LuceneContext;
-import com.github.sparrow.lucene.LuceneContextFactory;
-import com.github.sparrow.lucene.LuceneMode;
+import com.github.sparrow.lucene.QueryResultCache;
+import com.github.sparrow.lucene.SearchMetrics;
+import com.github.sparrow.lucene.SearcherManagerRegistry;
+import com.github.sparrow.lucene.SpellCorrector;
 import com.github.sparrow.lucene.engines.ArticlesEngine;
-import com.github.sparrow.lucene.entity.SearchHit;
+import com.github.sparrow.lucene.entity.SearchCursor;
 import com.github.sparrow.lucene.entity.SearchQuery;
+import com.github.sparrow.lucene.entity.SearchResults;
 import com.github.sparrow.service.ArticleService;
 import lombok.RequiredArgsConstructor;
+import org.apache.lucene.search.IndexSearcher;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.function.Function;
 
 @Service
 @RequiredArgsConstructor
 public class ArticleServiceImpl implements ArticleService {
 
   private final ArticlesEngine articlesEngine;
-  private final LuceneContextFactory luceneContextFactory;
+  private final SearcherManagerRegistry searcherRegistry;
+  private final QueryResultCache resultCache;
+  private final SearchMetrics searchMetrics;
+  private final SpellCorrector spellCorrector;
 
   @Override
-  public List<SearchHit<ArticleSearchResponse>> search(String query, Integer topN, Boolean stem) {
-    try (LuceneContext context = luceneContextFactory.createLuceneContext(EngineType.ARTICLES, LuceneMode.SEARCHING, stem)) {
-      return articlesEngine.search(context, SearchQuery.builder().query(query).topN(topN).build());
-    } catch (IOException ioe) {
-      throw new RuntimeException(ioe.getMessage());
+  public SearchResults<ArticleSearchResponse> search(String query, Integer topN, Boolean stem, String cursor) {
+    SearchCursor after = SearchCursor.decode(cursor);
+    IndexSearcher searcher = acquireSearcher(after == null ? null : after.versions());
+    try {
+      SearchQuery searchQuery = SearchQuery.builder().query(query).topN(topN).cursor(cursor).stemming(stem).build();
+      Function<SearchQuery, SearchResults<ArticleSearchResponse>> search = q -> searchMetrics.time(EngineType.ARTICLES, searcher,
+        () -> resultCache.search(EngineType.ARTICLES, articlesEngine, searcher, q, ArticleSearchResponse::ramBytesUsed));
+      SearchResults<ArticleSearchResponse> results = spellCorrector.correct(EngineType.ARTICLES, searcher,
+        ArticlesEngine.IndexField.CONTENT.getName(), searchQuery, search.apply(searchQuery), search);
+      if (results.getCursor() != null) searcherRegistry.pin(EngineType.ARTICLES, searcher);
+      return results;
+    } finally {
+      searcherRegistry.release(EngineType.ARTICLES, searcher);
     }
   }
 
   @Override
   public List<String> getIndexedTokens() {
-    try (LuceneContext context = luceneContextFactory.createLuceneContext(EngineType.ARTICLES, LuceneMode.SEARCHING)) {
-      return articlesEngine.getIndexedTokens(context, ArticlesEngine.IndexField.CONTENT);
+    IndexSearcher searcher = acquireSearcher();
+    try {
+      return articlesEngine.getIndexedTokens(searcher, ArticlesEngine.IndexField.CONTENT);
+    } finally {
+      searcherRegistry.release(EngineType.ARTICLES, searcher);
+    }
+  }
+
+  private IndexSearcher acquireSearcher() {
+    return acquireSearcher(null);
+  }
+
+  private IndexSearcher acquireSearcher(long[] versions) {
+    try {
+      return searcherRegistry.acquire(EngineType.ARTICLES, versions);
     } catch (IOException ioe) {
       throw new RuntimeException(ioe.getMessage());
     }
@@ -1,15 +1,16 @@
 package com.github.sparrow.service.impl;
 
-import com.github.sparrow.lucene.LuceneContext;
-import com.github.sparrow.lucene.LuceneContextFactory;
-import com.github.sparrow.lucene.LuceneMode;
 import com.github.sparrow.lucene.EngineType;
+import com.github.sparrow.lucene.QueryResultCache;
+import com.github.sparrow.lucene.SearchMetrics;
+import com.github.sparrow.lucene.SearcherManagerRegistry;
 import com.github.sparrow.lucene.entity.DictionaryEntry;
 import com.github.sparrow.lucene.entity.SearchHit;
 import com.github.sparrow.lucene.entity.SearchQuery;
 import com.github.sparrow.lucene.engines.DictionaryEngine;
 import com.github.sparrow.service.DictionaryService;
 import lombok.RequiredArgsConstructor;
+import org.apache.lucene.search.IndexSearcher;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
@@ -19,16 +20,39 @@ import java.util.List;
 @RequiredArgsConstructor
 public class DictionaryServiceImpl implements DictionaryService {
 
-  private final LuceneContextFactory luceneContextFactory;
+  private final SearcherManagerRegistry searcherRegistry;
   private final DictionaryEngine dictionaryEngine;
+  private final QueryResultCache resultCache;
+  private final SearchMetrics searchMetrics;
 
   @Override
   public List<SearchHit<DictionaryEntry>> search(String query) {
-    try (LuceneContext context = luceneContextFactory.createLuceneContext(EngineType.DICTIONARY, LuceneMode.SEARCHING)) {
-      return dictionaryEngine.search(context, SearchQuery.builder().query(query).build());
+    IndexSearcher searcher;
+    try {
+      searcher = searcherRegistry.acquire(EngineType.DICTIONARY);
     } catch (IOException e) {
       throw new RuntimeException(e.getMessage());
     }
+    try {
+      SearchQuery searchQuery = SearchQuery.builder().query(query).build();
+      return searchMetrics.time(EngineType.DICTIONARY, searcher,
+        () -> resultCache.search(EngineType.DICTIONARY, dictionaryEngine, searcher, searchQuery, DictionaryEntry::ramBytesUsed)).getHits();
+    } finally {
+      searcherRegistry.release(EngineType.DICTIONARY, searcher);
+    }
+  }
+
+  /**
+   * Served from the word fst, without a searcher
+   */
+  @Override
+  public List<DictionaryEntry> lookup(String word) {
+    return dictionaryEngine.lookup(word);
+  }
+
+  @Override
+  public List<String> lookupPrefix(String prefix, int n) {
+    return dictionaryEngine.lookupPrefix(prefix, n);
   }
 
 }
@@ -0,0 +1,162 @@
+package com.github.sparrow.service.impl;
+
+import com.github.sparrow.dto.ArticleSearchResponse;
+import com.github.sparrow.dto.MultiSearchRequest;
+import com.github.sparrow.dto.MultiSearchResponse;
+import com.github.sparrow.lucene.EngineType;
+import com.github.sparrow.lucene.IndexShard;
+import com.github.sparrow.lucene.QueryResultCache;
+import com.github.sparrow.lucene.SearchMetrics;
+import com.github.sparrow.lucene.SearcherManagerRegistry;
+import com.github.sparrow.lucene.engines.ArticlesEngine;
+import com.github.sparrow.lucene.engines.DictionaryEngine;
+import com.github.sparrow.lucene.engines.TweetsEngine;
+import com.github.sparrow.lucene.entity.DictionaryEntry;
+import com.github.sparrow.lucene.entity.SearchCursor;
+import com.github.sparrow.lucene.entity.SearchQuery;
+import com.github.sparrow.lucene.entity.SearchResults;
+import com.github.sparrow.lucene.entity.Tweet;
+import com.github.sparrow.service.MultiSearchService;
+import org.apache.lucene.search.IndexSearcher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Predicate;
+
+/**
+ * Runs a batch of queries over one searcher per engine, acquired once for the whole batch, so all the queries see
+ * the same point-in-time view of every index. Queries paging with a cursor, or searching other tweet shards, get a
+ * searcher of their own, shared with the queries of the same cursor version and shards. <br>
+ * Queries run concurrently on the search executor; a query searched in slices has its slices run by the same pool,
+ * which the searching thread helps with instead of blocking on them.
+ */
+@Service
+@PropertySource("classpath:sparrow.properties")
+public class MultiSearchServiceImpl implements MultiSearchService {
+
+  private static final Logger logger = LoggerFactory.getLogger(MultiSearchServiceImpl.class);
+
+  private final SearcherManagerRegistry searcherRegistry;
+  private final TweetsEngine tweetsEngine;
+  private final ArticlesEngine articlesEngine;
+  private final DictionaryEngine dictionaryEngine;
+  private final QueryResultCache resultCache;
+  private final SearchMetrics searchMetrics;
+  private final ExecutorService searchExecutor;
+
+  @Value("${search.multi.max.queries}")
+  private int maxQueries;
+
+  public MultiSearchServiceImpl(SearcherManagerRegistry searcherRegistry, TweetsEngine tweetsEngine, ArticlesEngine articlesEngine,
+                                DictionaryEngine dictionaryEngine, QueryResultCache resultCache, SearchMetrics searchMetrics,
+                                @Qualifier("searchExecutor") ExecutorService searchExecutor) {
+    this.searcherRegistry = searcherRegistry;
+    this.tweetsEngine = tweetsEngine;
+    this.articlesEngine = articlesEngine;
+    this.dictionaryEngine = dictionaryEngine;
+    this.resultCache = resultCache;
+    this.searchMetrics = searchMetrics;
+    this.searchExecutor = searchExecutor;
+  }
+
+  /**
+   * Searchers are pinned when a query has more pages, so the next batch pages over the same view; a query with a
+   * cursor is searched over the version of its own cursor
+   */
+  @Override
+  public List<MultiSearchResponse> search(List<MultiSearchRequest> requests) {
+    if (requests.size() > maxQueries) {
+      throw new IllegalArgumentException("At most " + maxQueries + " queries can be searched at once, got " + requests.size());
+    }
+    for (MultiSearchRequest request : requests) {
+      if (request.engine() == null || request.query() == null) {
+        throw new IllegalArgumentException("Every query needs an engine and a query");
+      }
+    }
+    List<SearcherKey> keys = requests.stream().map(MultiSearchServiceImpl::searcherKey).toList();
+    Map<SearcherKey, IndexSearcher> searchers = new HashMap<>();
+    try {
+      for (SearcherKey key : keys) {
+        if (!searchers.containsKey(key)) {
+          searchers.put(key, searcherRegistry.acquire(key.engine(), key.versionArray(), shardFilter(key)));
+        }
+      }
+      List<CompletableFuture<MultiSearchResponse>> responses = new ArrayList<>();
+      for (int i = 0; i < requests.size(); i++) {
+        MultiSearchRequest request = requests.get(i);
+        IndexSearcher searcher = searchers.get(keys.get(i));
+        responses.add(CompletableFuture.supplyAsync(() -> search(request, searcher), searchExecutor));
+      }
+      List<MultiSearchResponse> results = responses.stream().map(CompletableFuture::join).toList();
+      for (int i = 0; i < results.size(); i++) {
+        SearchResults<?> page = results.get(i).results();
+        if (page != null && page.getCursor() != null) {
+          searcherRegistry.pin(requests.get(i).engine(), searchers.get(keys.get(i)));
+        }
+      }
+      return results;
+    } catch (IOException ioe) {
+      throw new RuntimeException(ioe.getMessage());
+    } finally {
+      searchers.forEach((key, searcher) -> searcherRegistry.release(key.engine(), searcher));
+    }
+  }
+
+  /**
+   * The searcher a query is searched over: the version of its cursor, and for tweets the shards its username and
+   * dates are routed to
+   */
+  private record SearcherKey(EngineType engine, List<Long> versions, String username, LocalDate since, LocalDate until) {
+    long[] versionArray() {
+      return versions == null ? null : versions.stream().mapToLong(Long::longValue).toArray();
+    }
+  }
+
+  private static SearcherKey searcherKey(MultiSearchRequest request) {
+    SearchQuery query = request.query();
+    SearchCursor after = SearchCursor.decode(query.getCursor());
+    List<Long> versions = after == null ? null : Arrays.stream(after.versions()).boxed().toList();
+    if (request.engine() != EngineType.TWEETS) return new SearcherKey(request.engine(), versions, null, null, null);
+    return new SearcherKey(request.engine(), versions, query.getUsername(), query.getSince(), query.getUntil());
+  }
+
+  private Predicate<IndexShard> shardFilter(SearcherKey key) {
+    if (key.engine() != EngineType.TWEETS) return shard -> true;
+    return tweetsEngine.shardFilter(key.username(), key.since(), key.until());
+  }
+
+  private MultiSearchResponse search(MultiSearchRequest request, IndexSearcher searcher) {
+    EngineType engineType = request.engine();
+    SearchQuery searchQuery = request.query();
+    long start = System.nanoTime();
+    try {
+      SearchResults<?> results = searchMetrics.time(engineType, searcher, () -> switch (engineType) {
+        case TWEETS -> resultCache.search(engineType, tweetsEngine, searcher, searchQuery, Tweet::ramBytesUsed);
+        case ARTICLES -> resultCache.search(engineType, articlesEngine, searcher, searchQuery, ArticleSearchResponse::ramBytesUsed);
+        case DICTIONARY -> resultCache.search(engineType, dictionaryEngine, searcher, searchQuery, DictionaryEntry::ramBytesUsed);
+      });
+      return new MultiSearchResponse(engineType.getName(), results, tookMs(start), null);
+    } catch (RuntimeException ex) {
+      logger.error("{} query {} of a multi search failed : {}", engineType.getName(), searchQuery.getQuery(), ex.getMessage(), ex);
+      return new MultiSearchResponse(engineType.getName(), null, tookMs(start), ex.getMessage());
+    }
+  }
+
+  private static double tookMs(long start) {
+    return (System.nanoTime() - start) / 1_000_000d;
+  }
+
+}
@@ -0,0 +1,64 @@
+package com.github.sparrow.service.impl;
+
+import com.github.sparrow.lucene.EngineType;
+import com.github.sparrow.lucene.IndexStats;
+import com.github.sparrow.lucene.QueryResultCache;
+import com.github.sparrow.lucene.SearchMetrics;
+import com.github.sparrow.lucene.SearcherManagerRegistry;
+import com.github.sparrow.service.SearchStatsService;
+import lombok.RequiredArgsConstructor;
+import org.apache.lucene.search.IndexSearcher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+public class SearchStatsServiceImpl implements SearchStatsService {
+
+  private static final Logger logger = LoggerFactory.getLogger(SearchStatsServiceImpl.class);
+
+  private final QueryResultCache resultCache;
+  private final SearchMetrics searchMetrics;
+  private final SearcherManagerRegistry searcherRegistry;
+
+  @Override
+  public QueryResultCache.Stats getCacheStats() {
+    return resultCache.stats();
+  }
+
+  @Override
+  public List<SearchMetrics.LatencyStats> getLatencyStats() {
+    return searchMetrics.stats();
+  }
+
+  /**
+   * Stats of every engine's latest searcher, engines without an index yet are left out
+   */
+  @Override
+  public List<IndexStats> getIndexStats() {
+    List<IndexStats> stats = new ArrayList<>();
+    for (EngineType engineType : EngineType.values()) {
+      IndexSearcher searcher;
+      try {
+        searcher = searcherRegistry.acquire(engineType);
+      } catch (IOException ioe) {
+        logger.warn("No searchable index for {} : {}", engineType.getName(), ioe.getMessage());
+        continue;
+      }
+      try {
+        stats.add(IndexStats.of(engineType, searcher));
+      } catch (IOException ioe) {
+        throw new RuntimeException(ioe.getMessage());
+      } finally {
+        searcherRegistry.release(engineType, searcher);
+      }
+    }
+    return stats;
+  }
+
+}
@@ -0,0 +1,26 @@
+package com.github.sparrow.service.impl;
+
+import com.github.sparrow.lucene.EngineType;
+import com.github.sparrow.lucene.SuggesterRegistry;
+import com.github.sparrow.lucene.entity.Suggestion;
+import com.github.sparrow.service.SuggestService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+public class SuggestServiceImpl implements SuggestService {
+
+  private final SuggesterRegistry suggesterRegistry;
+
+  /**
+   * Completed from the engine's suggester alone, the index is never searched
+   */
+  @Override
+  public List<Suggestion> suggest(EngineType engineType, String prefix, int n) {
+    return suggesterRegistry.suggest(engineType, prefix, n);
+  }
+
+}
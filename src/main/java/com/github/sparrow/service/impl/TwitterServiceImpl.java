@@ -1,54 +1,119 @@
 package com.github.sparrow.service.impl;
 
-import com.github.sparrow.lucene.LuceneContext;
-import com.github.sparrow.lucene.LuceneContextFactory;
-import com.github.sparrow.lucene.LuceneMode;
 import com.github.sparrow.lucene.EngineType;
+import com.github.sparrow.lucene.IndexShard;
+import com.github.sparrow.lucene.QueryResultCache;
+import com.github.sparrow.lucene.SearchMetrics;
+import com.github.sparrow.lucene.SearcherManagerRegistry;
+import com.github.sparrow.lucene.SpellCorrector;
+import com.github.sparrow.lucene.entity.SearchCursor;
 import com.github.sparrow.lucene.entity.SearchHit;
 import com.github.sparrow.lucene.entity.SearchQuery;
+import com.github.sparrow.lucene.entity.SearchResults;
 import com.github.sparrow.lucene.entity.Tweet;
 import com.github.sparrow.lucene.engines.TweetsEngine;
 import com.github.sparrow.service.TwitterService;
 import lombok.RequiredArgsConstructor;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.util.IOConsumer;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 @Service
 @RequiredArgsConstructor
 public class TwitterServiceImpl implements TwitterService {
 
-  private final LuceneContextFactory contextFactory;
+  private final SearcherManagerRegistry searcherRegistry;
   private final TweetsEngine tweetsEngine;
+  private final QueryResultCache resultCache;
+  private final SearchMetrics searchMetrics;
+  private final SpellCorrector spellCorrector;
 
   @Override
-  public List<SearchHit<Tweet>> search(String query, Integer topN, String username, Boolean stem) {
-    try (LuceneContext context = contextFactory.createLuceneContext(EngineType.TWEETS, LuceneMode.SEARCHING, stem)) {
-      return tweetsEngine.search(context,
-        SearchQuery.builder()
-          .query(query)
-          .username(username)
-          .topN(topN)
-          .build());
-    } catch (IOException ioe) {
-      throw new RuntimeException(ioe.getMessage());
+  public SearchResults<Tweet> search(SearchQuery searchQuery) {
+    SearchCursor after = SearchCursor.decode(searchQuery.getCursor());
+    IndexSearcher searcher = acquireSearcher(after == null ? null : after.versions(),
+      tweetsEngine.shardFilter(searchQuery.getUsername(), searchQuery.getSince(), searchQuery.getUntil()));
+    try {
+      Function<SearchQuery, SearchResults<Tweet>> search = query -> searchMetrics.time(EngineType.TWEETS, searcher,
+        () -> resultCache.search(EngineType.TWEETS, tweetsEngine, searcher, query, Tweet::ramBytesUsed));
+      SearchResults<Tweet> results = spellCorrector.correct(EngineType.TWEETS, searcher, TweetsEngine.IndexField.TWEET.getName(),
+        searchQuery, search.apply(searchQuery), search);
+      if (results.getCursor() != null) searcherRegistry.pin(EngineType.TWEETS, searcher);
+      return results;
+    } finally {
+      searcherRegistry.release(EngineType.TWEETS, searcher);
     }
   }
 
+  /**
+   * The searcher is held until the last hit is pushed, streamed pages are not cached
+   */
   @Override
-  public List<Tweet> searchByUsername(String username) {
-    try (LuceneContext context = contextFactory.createLuceneContext(EngineType.TWEETS, LuceneMode.SEARCHING)) {
-      return tweetsEngine.searchByUsername(context, username);
-    } catch (IOException ioe) {
-      throw new RuntimeException(ioe.getMessage());
+  public String search(SearchQuery searchQuery, IOConsumer<SearchHit<Tweet>> sink) throws IOException {
+    SearchCursor after = SearchCursor.decode(searchQuery.getCursor());
+    IndexSearcher searcher = acquireSearcher(after == null ? null : after.versions(),
+      tweetsEngine.shardFilter(searchQuery.getUsername(), searchQuery.getSince(), searchQuery.getUntil()));
+    try {
+      String cursor = tweetsEngine.search(searcher, searchQuery, sink);
+      if (cursor != null) searcherRegistry.pin(EngineType.TWEETS, searcher);
+      return cursor;
+    } finally {
+      searcherRegistry.release(EngineType.TWEETS, searcher);
     }
   }
 
+  @Override
+  public void validate(SearchQuery searchQuery) {
+    tweetsEngine.validate(searchQuery);
+  }
+
+  @Override
+  public List<Tweet> searchByUsername(String username, Integer topN) {
+    return timeline(username, topN, null).getHits().stream().map(SearchHit::getHit).toList();
+  }
+
+  @Override
+  public SearchResults<Tweet> timeline(String username, Integer topN, String cursor) {
+    return search(SearchQuery.builder()
+      .username(username)
+      .topN(topN)
+      .cursor(cursor)
+      .sort(SearchQuery.Sort.DATE)
+      .build());
+  }
+
   @Override
   public Integer getAllIndexedTweets() {
-    try (LuceneContext context = contextFactory.createLuceneContext(EngineType.TWEETS, LuceneMode.SEARCHING)) {
-      return tweetsEngine.getIndexedTweets(context).size();
+    IndexSearcher searcher = acquireSearcher();
+    try {
+      return searcher.getIndexReader().numDocs();
+    } finally {
+      searcherRegistry.release(EngineType.TWEETS, searcher);
+    }
+  }
+
+  @Override
+  public void exportTweets(IOConsumer<Tweet> sink) throws IOException {
+    IndexSearcher searcher = acquireSearcher();
+    try {
+      tweetsEngine.exportTweets(searcher, sink);
+    } finally {
+      searcherRegistry.release(EngineType.TWEETS, searcher);
+    }
+  }
+
+  private IndexSearcher acquireSearcher() {
+    return acquireSearcher(null, shard -> true);
+  }
+
+  private IndexSearcher acquireSearcher(long[] versions, Predicate<IndexShard> shardFilter) {
+    try {
+      return searcherRegistry.acquire(EngineType.TWEETS, versions, shardFilter);
     } catch (IOException ioe) {
       throw new RuntimeException(ioe.getMessage());
     }
@@ -6,6 +6,7 @@ import com.github.sparrow.lucene.LuceneContext;
 import com.github.sparrow.lucene.LuceneContextFactory;
 import com.github.sparrow.lucene.LuceneMode;
 import com.github.sparrow.lucene.EngineType;
+import com.github.sparrow.lucene.SearcherManagerRegistry;
 import com.github.sparrow.lucene.engines.ArticlesEngine;
 import com.github.sparrow.repository.ArticleRepository;
 import com.github.sparrow.repository.CrawledPageRepository;
@@ -40,6 +41,7 @@ public class SpiderMan {
   private final ArticleRepository articleRepository;
   private final CrawledPageRepository crawledPageRepository;
   private final LuceneContextFactory contextFactory;
+  private final SearcherManagerRegistry searcherRegistry;
   private final HashUtil hashUtil;
 
   @Value("${spider.retries.max}")
@@ -59,6 +61,7 @@ public class SpiderMan {
         crawlArticle(luceneContext, article);
       }
     }
+    searcherRegistry.maybeRefresh(EngineType.ARTICLES);
   }
 
   private void crawlArticle(LuceneContext context, Article article) {
@@ -27,6 +27,7 @@ public class TweetUtil {
       .username(t.getUsername())
       .fullName(t.getFullName())
       .tweet(t.getTweet())
+      .url(t.getUrl())
       .likes(t.getLikes() == null ? 0 : t.getLikes())
       .views(t.getViews() == null ? 0 : t.getViews())
       .retweets(t.getRetweets() == null ? 0 : t.getRetweets())
@@ -0,0 +1,149 @@
+package com.github.sparrow.lucene.engines;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopScoreDocCollectorManager;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pages of {@link TopHitsCollectorManager} must match the ones of Lucene's own {@link TopScoreDocCollectorManager},
+ * over an index of many small segments searched as one slice and as a slice per segment
+ */
+class TopHitsCollectorTest {
+
+  private static final String FIELD = "tweet";
+  private static final String[] WORDS = {"lucene", "search", "index", "tweet", "query", "score", "page", "shard"};
+
+  private static Directory directory;
+  private static DirectoryReader reader;
+  private static ExecutorService executor;
+
+  @BeforeAll
+  static void index() throws IOException {
+    directory = new ByteBuffersDirectory();
+    IndexWriterConfig config = new IndexWriterConfig()
+      .setMaxBufferedDocs(50)
+      .setMergePolicy(NoMergePolicy.INSTANCE);
+    Random random = new Random(42);
+    try (IndexWriter writer = new IndexWriter(directory, config)) {
+      for (int i = 0; i < 1000; i++) {
+        StringBuilder text = new StringBuilder();
+        int length = 1 + random.nextInt(6);
+        for (int j = 0; j < length; j++) {
+          text.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+        }
+        Document document = new Document();
+        document.add(new TextField(FIELD, text.toString(), Field.Store.NO));
+        writer.addDocument(document);
+      }
+    }
+    reader = DirectoryReader.open(directory);
+    executor = Executors.newFixedThreadPool(4);
+    assertTrue(reader.leaves().size() > 1);
+  }
+
+  @AfterAll
+  static void close() throws IOException {
+    executor.shutdown();
+    reader.close();
+    directory.close();
+  }
+
+  @Test
+  void firstPageMatchesTopScoreDocs() throws IOException {
+    for (IndexSearcher searcher : searchers()) {
+      for (Query query : queries()) {
+        for (int topN : new int[]{1, 10, 200, 5000}) {
+          assertPageEquals(searcher, query, topN, null);
+        }
+      }
+    }
+  }
+
+  @Test
+  void everyPageAfterMatchesTopScoreDocs() throws IOException {
+    for (IndexSearcher searcher : searchers()) {
+      for (Query query : queries()) {
+        ScoreDoc after = null;
+        int pages = 0;
+        do {
+          ScoreDoc[] page = assertPageEquals(searcher, query, 25, after);
+          after = page.length == 0 ? null : page[page.length - 1];
+          pages++;
+        } while (after != null);
+        assertTrue(pages > 1);
+      }
+    }
+  }
+
+  private static ScoreDoc[] assertPageEquals(IndexSearcher searcher, Query query, int topN, ScoreDoc after) throws IOException {
+    TopDocs expected = searcher.search(query, new TopScoreDocCollectorManager(topN, after, Integer.MAX_VALUE));
+    TopDocs actual = searcher.search(query, new TopHitsCollectorManager(topN, after));
+    assertArrayEquals(docs(expected), docs(actual), () -> "docs of " + query + " after " + after);
+    assertArrayEquals(scores(expected), scores(actual), () -> "scores of " + query + " after " + after);
+    return actual.scoreDocs;
+  }
+
+  private static List<IndexSearcher> searchers() {
+    IndexSearcher sliced = new IndexSearcher(reader, executor) {
+      @Override
+      protected LeafSlice[] slices(List<LeafReaderContext> leaves) {
+        return leaves.stream()
+          .map(leaf -> new LeafSlice(List.of(LeafReaderContextPartition.createForEntireSegment(leaf))))
+          .toArray(LeafSlice[]::new);
+      }
+    };
+    return List.of(new IndexSearcher(reader), sliced);
+  }
+
+  private static List<Query> queries() {
+    BooleanQuery.Builder disjunction = new BooleanQuery.Builder();
+    disjunction.add(new TermQuery(new Term(FIELD, "lucene")), BooleanClause.Occur.SHOULD);
+    disjunction.add(new TermQuery(new Term(FIELD, "shard")), BooleanClause.Occur.SHOULD);
+    disjunction.add(new TermQuery(new Term(FIELD, "page")), BooleanClause.Occur.SHOULD);
+    BooleanQuery.Builder conjunction = new BooleanQuery.Builder();
+    conjunction.add(new TermQuery(new Term(FIELD, "search")), BooleanClause.Occur.MUST);
+    conjunction.add(new TermQuery(new Term(FIELD, "index")), BooleanClause.Occur.MUST);
+    return List.of(new TermQuery(new Term(FIELD, "tweet")), disjunction.build(), conjunction.build());
+  }
+
+  private static int[] docs(TopDocs topDocs) {
+    int[] docs = new int[topDocs.scoreDocs.length];
+    for (int i = 0; i < docs.length; i++) docs[i] = topDocs.scoreDocs[i].doc;
+    return docs;
+  }
+
+  private static float[] scores(TopDocs topDocs) {
+    float[] scores = new float[topDocs.scoreDocs.length];
+    for (int i = 0; i < scores.length; i++) scores[i] = topDocs.scoreDocs[i].score;
+    return scores;
+  }
+
+}
@@ -0,0 +1,144 @@
+package com.github.sparrow.lucene.engines;
+
+import com.github.sparrow.lucene.engines.TweetsEngine.IndexField;
+import com.github.sparrow.lucene.entity.Tweet;
+import com.github.sparrow.util.DateUtil;
+import org.apache.lucene.store.ByteArrayDataInput;
+import org.apache.lucene.store.ByteBuffersDataOutput;
+import org.apache.lucene.util.BytesRef;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class TweetPayloadTest {
+
+  private static final List<IndexField> ATTRIBUTES = List.copyOf(TweetPayload.ALL_FIELDS);
+
+  private final DateUtil dateUtil = new DateUtil();
+
+  @Test
+  void roundTripsEveryAttribute() throws IOException {
+    Tweet tweet = tweet();
+    assertTweet(tweet, decode(encode(tweet), TweetPayload.ALL_FIELDS), TweetPayload.ALL_FIELDS);
+  }
+
+  @Test
+  void roundTripsWithEachAttributeMissing() throws IOException {
+    for (IndexField missing : ATTRIBUTES) {
+      Tweet tweet = without(tweet(), missing);
+      Tweet decoded = decode(encode(tweet), TweetPayload.ALL_FIELDS);
+      assertNull(value(decoded, missing), () -> missing + " was not encoded");
+      assertTweet(tweet, decoded, TweetPayload.ALL_FIELDS);
+    }
+  }
+
+  @Test
+  void roundTripsWithoutAnyAttribute() throws IOException {
+    Tweet tweet = Tweet.builder().build();
+    assertTweet(tweet, decode(encode(tweet), TweetPayload.ALL_FIELDS), TweetPayload.ALL_FIELDS);
+  }
+
+  @Test
+  void decodesEverySubsetOfTheAttributes() throws IOException {
+    Tweet tweet = tweet();
+    BytesRef payload = encode(tweet);
+    for (int mask = 0; mask < 1 << ATTRIBUTES.size(); mask++) {
+      Set<IndexField> fields = EnumSet.noneOf(IndexField.class);
+      for (int i = 0; i < ATTRIBUTES.size(); i++) {
+        if ((mask & (1 << i)) != 0) fields.add(ATTRIBUTES.get(i));
+      }
+      assertTweet(tweet, decode(payload, fields), fields);
+    }
+  }
+
+  @Test
+  void leavesTheInputAfterThePayload() throws IOException {
+    Tweet first = tweet();
+    Tweet second = without(tweet(), IndexField.TWEET);
+    second.setTweetId(7L);
+    ByteBuffersDataOutput out = new ByteBuffersDataOutput();
+    for (Tweet tweet : List.of(first, second)) {
+      BytesRef payload = encode(tweet);
+      out.writeBytes(payload.bytes, payload.offset, payload.length);
+    }
+    byte[] bytes = out.toArrayCopy();
+    ByteArrayDataInput in = new ByteArrayDataInput(bytes);
+    Set<IndexField> fields = EnumSet.of(IndexField.TWEET_ID, IndexField.URL);
+    assertTweet(first, TweetPayload.decode(in, fields, dateUtil), fields);
+    assertTweet(second, TweetPayload.decode(in, fields, dateUtil), fields);
+    assertEquals(bytes.length, in.getPosition());
+  }
+
+  private static Tweet tweet() {
+    return Tweet.builder()
+      .tweetId(1_234_567_890_123L)
+      .username("ayush")
+      .fullName("Ayush Rawat ✓")
+      .tweet("indexing tweets with lucene, one payload at a time 🚀")
+      .url("https://x.com/ayush/status/1234567890123")
+      .views(1_000_000)
+      .likes(0)
+      .retweets(42)
+      // before the epoch, so the date is written as a negative zigzag long
+      .tweetDate(LocalDateTime.of(1969, 7, 20, 20, 17, 40))
+      .build();
+  }
+
+  private BytesRef encode(Tweet tweet) {
+    return TweetPayload.encode(tweet, tweet.getTweetDate() == null ? null : dateUtil.convertToLong(tweet.getTweetDate()));
+  }
+
+  private Tweet decode(BytesRef payload, Set<IndexField> fields) throws IOException {
+    return TweetPayload.decode(new ByteArrayDataInput(payload.bytes, payload.offset, payload.length), fields, dateUtil);
+  }
+
+  /// the decoded tweet holds the requested attributes of the original one, and none of the others
+  private static void assertTweet(Tweet expected, Tweet actual, Set<IndexField> fields) {
+    for (IndexField field : ATTRIBUTES) {
+      if (fields.contains(field)) {
+        assertEquals(value(expected, field), value(actual, field), () -> field + " of " + fields);
+      } else {
+        assertNull(value(actual, field), () -> field + " was not requested in " + fields);
+      }
+    }
+  }
+
+  private static Tweet without(Tweet tweet, IndexField field) {
+    switch (field) {
+      case TWEET_ID -> tweet.setTweetId(null);
+      case USERNAME -> tweet.setUsername(null);
+      case FULL_NAME -> tweet.setFullName(null);
+      case TWEET -> tweet.setTweet(null);
+      case URL -> tweet.setUrl(null);
+      case VIEWS -> tweet.setViews(null);
+      case LIKES -> tweet.setLikes(null);
+      case RETWEETS -> tweet.setRetweets(null);
+      case DATE -> tweet.setTweetDate(null);
+      default -> throw new IllegalArgumentException("Not a tweet attribute " + field);
+    }
+    return tweet;
+  }
+
+  private static Object value(Tweet tweet, IndexField field) {
+    return switch (field) {
+      case TWEET_ID -> tweet.getTweetId();
+      case USERNAME -> tweet.getUsername();
+      case FULL_NAME -> tweet.getFullName();
+      case TWEET -> tweet.getTweet();
+      case URL -> tweet.getUrl();
+      case VIEWS -> tweet.getViews();
+      case LIKES -> tweet.getLikes();
+      case RETWEETS -> tweet.getRetweets();
+      case DATE -> tweet.getTweetDate();
+      default -> throw new IllegalArgumentException("Not a tweet attribute " + field);
+    };
+  }
+
+}
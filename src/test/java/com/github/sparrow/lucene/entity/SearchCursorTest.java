@@ -0,0 +1,69 @@
+package com.github.sparrow.lucene.entity;
+
+import org.apache.lucene.document.LongField;
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.SortedNumericSelector;
+import org.junit.jupiter.api.Test;
+
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SearchCursorTest {
+
+  @Test
+  void roundTripsASingleVersion() {
+    assertRoundTrip(new SearchCursor(new long[]{17L}, 42, 3.5f, 0L));
+  }
+
+  @Test
+  void roundTripsTheVersionsOfEveryShard() {
+    assertRoundTrip(new SearchCursor(new long[]{1L, Long.MAX_VALUE, 0L, -5L}, Integer.MAX_VALUE, Float.MIN_VALUE, Long.MIN_VALUE));
+  }
+
+  @Test
+  void roundTripsTheMostShards() {
+    long[] versions = new long[0xFFFF];
+    for (int i = 0; i < versions.length; i++) versions[i] = i * 31L;
+    assertRoundTrip(new SearchCursor(versions, 0, 0f, 1_700_000_000_000L));
+  }
+
+  @Test
+  void decodesNoCursorAsTheFirstPage() {
+    assertNull(SearchCursor.decode(null));
+    assertNull(SearchCursor.decode(""));
+    assertNull(SearchCursor.decode("  "));
+  }
+
+  @Test
+  void rejectsInvalidCursors() {
+    String cursor = new SearchCursor(new long[]{1L, 2L}, 3, 4f, 5L).encode();
+    assertThrows(IllegalArgumentException.class, () -> SearchCursor.decode("not a cursor!"));
+    assertThrows(IllegalArgumentException.class, () -> SearchCursor.decode(cursor.substring(0, cursor.length() - 4)));
+    assertThrows(IllegalArgumentException.class, () -> SearchCursor.decode(cursor + "AAAA"));
+    assertThrows(IllegalArgumentException.class, () -> SearchCursor.decode(Base64.getUrlEncoder().encodeToString(new byte[18])));
+  }
+
+  @Test
+  void boxesTheSortValueToTheSortedType() {
+    SearchCursor cursor = new SearchCursor(new long[]{1L}, 3, Float.NaN, 1_700_000_000_000L);
+    FieldDoc date = cursor.toFieldDoc(LongField.newSortField("date", true, SortedNumericSelector.Type.MAX));
+    assertEquals(1_700_000_000_000L, date.fields[0]);
+    FieldDoc likes = new SearchCursor(new long[]{1L}, 3, Float.NaN, 12L).toFieldDoc(new SortField("likes", SortField.Type.INT, true));
+    assertEquals(12, likes.fields[0]);
+    assertEquals(3, likes.doc);
+  }
+
+  private static void assertRoundTrip(SearchCursor cursor) {
+    SearchCursor decoded = SearchCursor.decode(cursor.encode());
+    assertArrayEquals(cursor.versions(), decoded.versions());
+    assertEquals(cursor.doc(), decoded.doc());
+    assertEquals(cursor.score(), decoded.score());
+    assertEquals(cursor.value(), decoded.value());
+  }
+
+}